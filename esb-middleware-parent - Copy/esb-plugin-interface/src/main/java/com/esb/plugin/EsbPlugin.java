@@ -1,5 +1,10 @@
 package com.esb.plugin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Interface that all ESB plugins must implement.
  * This defines the contract for plugin execution and lifecycle management.
@@ -21,6 +26,41 @@ public interface EsbPlugin {
      */
     PluginResponse process(PluginRequest request) throws PluginException;
 
+    /**
+     * Process the incoming request without blocking the calling thread.
+     * Plugins calling downstream systems should override this with a non-blocking implementation;
+     * the default runs process() on the calling thread and returns its result as a completed stage.
+     * @param request The plugin request
+     * @return Stage completing with the plugin response, or exceptionally with a PluginException if processing fails
+     */
+    default CompletionStage<PluginResponse> processAsync(PluginRequest request) {
+        try {
+            return CompletableFuture.completedFuture(process(request));
+        } catch (PluginException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Process several requests for the same endpoint in one call.
+     * The router only batches plugins that declare a "batchSize" greater than 1 in their metadata configuration.
+     * Plugins whose downstream system accepts batches should override this; the default processes the requests one by one.
+     * @param requests Requests for the same endpoint, at most batchSize of them
+     * @return One response per request, in request order; a request that fails gets an error response
+     * @throws PluginException if the batch as a whole fails
+     */
+    default List<PluginResponse> processBatch(List<PluginRequest> requests) throws PluginException {
+        List<PluginResponse> responses = new ArrayList<>(requests.size());
+        for (PluginRequest request : requests) {
+            try {
+                responses.add(process(request));
+            } catch (PluginException e) {
+                responses.add(PluginResponse.error(request.getRequestId(), e.getErrorCode(), e.getMessage()));
+            }
+        }
+        return responses;
+    }
+
     /**
      * Get plugin metadata information
      * @return Plugin metadata
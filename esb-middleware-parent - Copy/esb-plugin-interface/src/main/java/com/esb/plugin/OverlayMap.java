@@ -0,0 +1,97 @@
+package com.esb.plugin;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copy-on-write map over a shared, read-only base map.
+ * Reads fall through to the base; puts and removes are recorded in a private layer
+ * that is only allocated on the first write, so the base is never copied or modified.
+ * Entry set and iterators are read-only snapshots.
+ */
+final class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, V> base;
+    private Map<K, V> overlay;
+    private Set<Object> removed;
+
+    OverlayMap(Map<K, V> base) {
+        this.base = base;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (overlay != null && overlay.containsKey(key)) {
+            return overlay.get(key);
+        }
+        if (removed != null && removed.contains(key)) {
+            return null;
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (overlay != null && overlay.containsKey(key)) {
+            return true;
+        }
+        if (removed != null && removed.contains(key)) {
+            return false;
+        }
+        return base.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V previous = get(key);
+        if (overlay == null) {
+            overlay = new HashMap<>();
+        }
+        overlay.put(key, value);
+        if (removed != null) {
+            removed.remove(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        V previous = get(key);
+        if (overlay != null) {
+            overlay.remove(key);
+        }
+        if (base.containsKey(key)) {
+            if (removed == null) {
+                removed = new HashSet<>();
+            }
+            removed.add(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        overlay = null;
+        removed = new HashSet<>(base.keySet());
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (overlay == null && removed == null) {
+            return Collections.unmodifiableMap(base).entrySet();
+        }
+        Map<K, V> merged = new LinkedHashMap<>(base);
+        if (removed != null) {
+            merged.keySet().removeAll(removed);
+        }
+        if (overlay != null) {
+            merged.putAll(overlay);
+        }
+        return Collections.unmodifiableMap(merged).entrySet();
+    }
+}
@@ -1,19 +1,31 @@
 package com.esb.plugin;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
-
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Standard request object passed to all plugins
+ * Standard request object passed to all plugins.
+ * When the router has the original request bytes they are passed through as a read-only
+ * raw payload; the payload object is then only decoded on first access.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class PluginRequest {
 
+    private static final ObjectMapper payloadMapper = new ObjectMapper();
+
     private String requestId;
     private String branchCode;
     private String endpoint;
@@ -25,6 +37,9 @@ public class PluginRequest {
     private String sourceSystem;
     private String correlationId;
 
+    @JsonIgnore
+    private ByteBuffer rawPayload;
+
     public PluginRequest() {
         this.headers = new HashMap<>();
         this.parameters = new HashMap<>();
@@ -38,6 +53,26 @@ public class PluginRequest {
         this.endpoint = endpoint;
     }
 
+    private PluginRequest(Map<String, Object> headers, Map<String, Object> parameters) {
+        this.headers = headers;
+        this.parameters = parameters;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    /**
+     * Create a request over shared, read-only header and parameter defaults.
+     * The defaults are neither copied nor modified; values added to the request shadow them.
+     */
+    public static PluginRequest withDefaults(String requestId, String branchCode, String endpoint,
+                                             Map<String, Object> defaultHeaders,
+                                             Map<String, Object> defaultParameters) {
+        PluginRequest request = new PluginRequest(new OverlayMap<>(defaultHeaders), new OverlayMap<>(defaultParameters));
+        request.requestId = requestId;
+        request.branchCode = branchCode;
+        request.endpoint = endpoint;
+        return request;
+    }
+
     // Getters and Setters
     public String getRequestId() {
         return requestId;
@@ -80,6 +115,13 @@ public class PluginRequest {
     }
 
     public Object getPayload() {
+        if (payload == null && rawPayload != null) {
+            try {
+                payload = readPayload(Object.class, payloadMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode raw payload", e);
+            }
+        }
         return payload;
     }
 
@@ -119,6 +161,55 @@ public class PluginRequest {
         this.correlationId = correlationId;
     }
 
+    /**
+     * Get the original request bytes as a read-only buffer, or null if none were passed through
+     */
+    @JsonIgnore
+    public ByteBuffer getRawPayload() {
+        return rawPayload != null ? rawPayload.duplicate() : null;
+    }
+
+    @JsonIgnore
+    public void setRawPayload(ByteBuffer rawPayload) {
+        this.rawPayload = rawPayload != null ? rawPayload.asReadOnlyBuffer() : null;
+    }
+
+    public boolean hasRawPayload() {
+        return rawPayload != null;
+    }
+
+    /**
+     * Open a stream over the original request bytes
+     */
+    public InputStream openRawPayload() {
+        return rawPayload != null ? new ByteBufferBackedInputStream(rawPayload.duplicate()) : null;
+    }
+
+    /**
+     * Get the original request bytes decoded as UTF-8 text
+     */
+    public String getRawPayloadAsString() {
+        return rawPayload != null ? StandardCharsets.UTF_8.decode(rawPayload.duplicate()).toString() : null;
+    }
+
+    /**
+     * Deserialize the payload straight into the given type.
+     * Reads from the raw bytes when present, otherwise converts the payload object.
+     * @param type Target type
+     * @param mapper Object mapper to use for binding
+     * @return Payload as the target type, or null if there is no payload
+     * @throws IOException if the payload cannot be read
+     */
+    public <T> T readPayload(Class<T> type, ObjectMapper mapper) throws IOException {
+        if (rawPayload != null) {
+            return mapper.readValue(openRawPayload(), type);
+        }
+        if (payload == null) {
+            return null;
+        }
+        return mapper.convertValue(payload, type);
+    }
+
     // Helper methods
     public void addHeader(String key, Object value) {
         this.headers.put(key, value);
@@ -0,0 +1,37 @@
+package com.esb.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Response side of a streamed plugin call, backed by the client connection
+ */
+public interface PluginStreamResponse {
+
+    /**
+     * Set the response status, ignored once the response is committed
+     */
+    void setStatusCode(int statusCode);
+
+    /**
+     * Set the response content type, ignored once the response is committed
+     */
+    void setContentType(String contentType);
+
+    /**
+     * Set a response header, ignored once the response is committed
+     */
+    void setHeader(String name, String value);
+
+    /**
+     * Get the stream writing to the client; the first write commits status and headers
+     * @return Response body stream, completed by the router after the plugin returns
+     * @throws IOException if the client connection is unavailable
+     */
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * @return true once status and headers have been sent
+     */
+    boolean isCommitted();
+}
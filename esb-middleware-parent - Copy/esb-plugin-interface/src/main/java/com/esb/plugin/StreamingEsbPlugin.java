@@ -0,0 +1,29 @@
+package com.esb.plugin;
+
+import java.io.InputStream;
+
+/**
+ * Optional contract for plugins handling large, document-style payloads.
+ * The request body is handed over as a stream straight from the client connection and the plugin
+ * writes its response body to the client as it produces it, so neither side is held in memory.
+ */
+public interface StreamingEsbPlugin extends EsbPlugin {
+
+    /**
+     * Check if the endpoint is served through processStream()
+     * @param endpoint Endpoint name
+     * @return true if requests for the endpoint may be streamed
+     */
+    boolean supportsStreaming(String endpoint);
+
+    /**
+     * Process a streamed request.
+     * The request carries routing data, headers and parameters but no payload; the body is read from the stream.
+     * Status and headers must be set on the response before its output stream is first written.
+     * @param request The plugin request without payload
+     * @param body Request body, read once; use java.nio.channels.Channels.newChannel() for channel access
+     * @param response Response to write status, headers and body to
+     * @throws PluginException if processing fails; once the response is committed the client sees a truncated body
+     */
+    void processStream(PluginRequest request, InputStream body, PluginStreamResponse response) throws PluginException;
+}
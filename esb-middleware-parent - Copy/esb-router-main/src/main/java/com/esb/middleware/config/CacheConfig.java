@@ -1,21 +1,84 @@
 package com.esb.middleware.config;
 
+import com.esb.middleware.mapper.PluginConfigMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * Cache configuration for ESB Router
+ * Cache configuration for ESB Router.
+ * Every cache is bounded and records statistics, so actuator publishes
+ * cache.gets, cache.evictions and cache.size for each of them.
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    public static final String ROUTE_CONFIG_MISSES = "routeConfigMisses";
+    public static final String SERVICE_CONFIG_MISSES = "serviceConfigMisses";
+    public static final String PLUGIN_CONFIG = "pluginConfig";
+
+    @Autowired
+    private PluginConfigMapper pluginConfigMapper;
+
+    @Value("${esb.config.negative-cache.ttl:60000}")
+    private long negativeCacheTtl;
+
+    @Value("${esb.config.negative-cache.max-size:10000}")
+    private long negativeCacheMaxSize;
+
+    @Value("${esb.cache.plugin-config.max-size:500}")
+    private long pluginConfigMaxSize;
+
+    @Value("${esb.cache.plugin-config.expire-after-write:600000}")
+    private long pluginConfigExpireAfterWrite;
+
+    @Value("${esb.cache.plugin-config.refresh-after-write:60000}")
+    private long pluginConfigRefreshAfterWrite;
+
+    @Value("${esb.cache.default.max-size:1000}")
+    private long defaultMaxSize;
+
+    @Value("${esb.cache.default.expire-after-write:600000}")
+    private long defaultExpireAfterWrite;
+
     @Bean
-    public ConcurrentMapCacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("routeConfig");
+    public CaffeineCacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setAllowNullValues(false);
+
+        // Caches created on demand by name are bounded as well
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+            .maximumSize(defaultMaxSize)
+            .expireAfterWrite(defaultExpireAfterWrite, TimeUnit.MILLISECONDS)
+            .recordStats());
+
+        // Unknown branch/key lookups remembered by the config services
+        cacheManager.registerCustomCache(ROUTE_CONFIG_MISSES, negativeCache());
+        cacheManager.registerCustomCache(SERVICE_CONFIG_MISSES, negativeCache());
+
+        // Plugin config rows, reloaded in the background once stale so readers never wait on the database
+        cacheManager.registerCustomCache(PLUGIN_CONFIG, Caffeine.newBuilder()
+            .maximumSize(pluginConfigMaxSize)
+            .expireAfterWrite(pluginConfigExpireAfterWrite, TimeUnit.MILLISECONDS)
+            .refreshAfterWrite(pluginConfigRefreshAfterWrite, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build(pluginId -> pluginConfigMapper.findByPluginId((String) pluginId)));
+
         return cacheManager;
     }
-}
\ No newline at end of file
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> negativeCache() {
+        return Caffeine.newBuilder()
+            .maximumSize(negativeCacheMaxSize)
+            .expireAfterWrite(negativeCacheTtl, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+}
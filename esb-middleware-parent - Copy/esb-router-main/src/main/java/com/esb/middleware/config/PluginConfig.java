@@ -1,10 +1,13 @@
 package com.esb.middleware.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import javax.annotation.PostConstruct;
 import java.io.File;
 import java.util.concurrent.Executor;
 
@@ -14,6 +17,11 @@ import java.util.concurrent.Executor;
 @Configuration
 public class PluginConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(PluginConfig.class);
+
+    public static final String EXECUTOR_MODE_PLATFORM = "platform";
+    public static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+
     @Value("${esb.plugin.directory:plugins}")
     private String pluginDirectory;
 
@@ -32,6 +40,41 @@ public class PluginConfig {
     @Value("${esb.plugin.thread.queue-capacity:100}")
     private int queueCapacity;
 
+    @Value("${esb.plugin.executor.mode:platform}")
+    private String executorMode;
+
+    private String effectiveExecutorMode;
+
+    @Value("${esb.plugin.batch.thread.core-pool-size:2}")
+    private int batchCorePoolSize;
+
+    @Value("${esb.plugin.batch.thread.max-pool-size:10}")
+    private int batchMaxPoolSize;
+
+    @Value("${esb.plugin.batch.thread.queue-capacity:50}")
+    private int batchQueueCapacity;
+
+    @Value("${esb.audit.thread.core-pool-size:2}")
+    private int auditCorePoolSize;
+
+    @Value("${esb.audit.thread.max-pool-size:5}")
+    private int auditMaxPoolSize;
+
+    @Value("${esb.audit.thread.queue-capacity:1000}")
+    private int auditQueueCapacity;
+
+    @PostConstruct
+    public void resolveExecutorMode() {
+        effectiveExecutorMode = EXECUTOR_MODE_PLATFORM;
+        if (EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            if (VirtualThreads.isSupported()) {
+                effectiveExecutorMode = EXECUTOR_MODE_VIRTUAL;
+            } else {
+                logger.warn("esb.plugin.executor.mode=virtual requires Java 21, using platform threads");
+            }
+        }
+    }
+
     @Bean
     public File pluginDirectory() {
         File dir = new File(pluginDirectory);
@@ -43,6 +86,11 @@ public class PluginConfig {
 
     @Bean(name = "pluginExecutor")
     public Executor pluginExecutor() {
+        if (EXECUTOR_MODE_VIRTUAL.equals(getExecutorMode())) {
+            logger.info("Plugin dispatch running on virtual threads");
+            return VirtualThreads.newThreadPerTaskExecutor("Plugin-");
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(maxPoolSize);
@@ -53,6 +101,46 @@ public class PluginConfig {
         return executor;
     }
 
+    /**
+     * Executor for plugin batches, rejecting when saturated so a batch never runs on the batcher's flush thread
+     */
+    @Bean(name = "pluginBatchExecutor")
+    public Executor pluginBatchExecutor() {
+        if (EXECUTOR_MODE_VIRTUAL.equals(getExecutorMode())) {
+            return VirtualThreads.newThreadPerTaskExecutor("PluginBatchRun-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchCorePoolSize);
+        executor.setMaxPoolSize(batchMaxPoolSize);
+        executor.setQueueCapacity(batchQueueCapacity);
+        executor.setThreadNamePrefix("PluginBatchRun-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for audit writes, kept apart so audit load never queues behind plugin calls.
+     * Writes rejected while the queue is full are spilled by AuditService and written in batches.
+     */
+    @Bean(name = "auditExecutor")
+    public Executor auditExecutor() {
+        if (EXECUTOR_MODE_VIRTUAL.equals(getExecutorMode())) {
+            return VirtualThreads.newThreadPerTaskExecutor("Audit-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(auditCorePoolSize);
+        executor.setMaxPoolSize(auditMaxPoolSize);
+        executor.setQueueCapacity(auditQueueCapacity);
+        executor.setThreadNamePrefix("Audit-");
+        // Reject instead of running on the caller, which would block a request thread behind audit inserts
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     public String getPluginDirectory() {
         return pluginDirectory;
     }
@@ -64,4 +152,11 @@ public class PluginConfig {
     public long getReloadInterval() {
         return reloadInterval;
     }
+
+    /**
+     * Get effective executor mode, virtual falls back to platform on JVMs older than 21
+     */
+    public String getExecutorMode() {
+        return effectiveExecutorMode;
+    }
 }
\ No newline at end of file
@@ -4,18 +4,33 @@
 // ========================================================================
 package com.esb.middleware.controller;
 
+import com.esb.middleware.handler.EsbEnvelopeParser;
+import com.esb.middleware.model.EsbBatchResponse;
+import com.esb.middleware.model.EsbEnvelope;
 import com.esb.middleware.model.EsbRequest;
 import com.esb.middleware.model.EsbResponse;
 import com.esb.middleware.service.EsbRouterService;
+import com.esb.middleware.service.RequestIdGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.validation.Valid;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -32,105 +47,215 @@ public class EsbDynamicRouterController {
     @Autowired
     private EsbRouterService esbRouterService;
     
+    @Autowired
+    private EsbEnvelopeParser envelopeParser;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RequestIdGenerator requestIdGenerator;
+    
+    @Value("${esb.router.async.enabled:false}")
+    private boolean asyncEnabled;
+    
+    @Value("${esb.router.async.timeout:30000}")
+    private long asyncTimeout;
+    
+    @Value("${esb.router.batch.max-size:500}")
+    private int batchMaxSize;
+    
+    @Value("${esb.router.batch.timeout:120000}")
+    private long batchTimeout;
+    
     /**
      * Legacy endpoint - works with your existing infrastructure
      */
     @PostMapping("/route")
-    public ResponseEntity<EsbResponse> routeRequest(@Valid @RequestBody Object request,
+    public DeferredResult<ResponseEntity<EsbResponse>> routeRequest(@RequestBody byte[] body,
                                                    HttpServletRequest httpRequest) {
         
         logger.info("Received ESB request on legacy endpoint");
         
         try {
             // Convert to your existing EsbRequest format
-            EsbRequest esbRequest = convertToEsbRequest(request);
+            EsbRequest esbRequest = convertToEsbRequest(envelopeParser.read(body));
             
             // Validate request
             if (!esbRouterService.isValidRequest(esbRequest)) {
                 EsbResponse response = EsbResponse.error("INVALID_REQUEST", 
                     "VALIDATION_ERROR", "Invalid request parameters");
-                return ResponseEntity.badRequest().body(response);
+                return completed(ResponseEntity.badRequest().body(response));
             }
             
             String sourceIp = getClientIpAddress(httpRequest);
             
             // Process request using existing service
-            EsbResponse response = esbRouterService.processRequest(esbRequest, sourceIp);
-            
-            HttpStatus httpStatus = mapResponseStatus(response);
-            return ResponseEntity.status(httpStatus).body(response);
+            return dispatch(esbRequest, sourceIp);
             
+        } catch (JsonProcessingException e) {
+            logger.warn("Malformed ESB request: {}", e.getOriginalMessage());
+            return completed(ResponseEntity.badRequest().body(malformedRequest(e)));
         } catch (Exception e) {
             logger.error("Error processing request", e);
             
             EsbResponse response = EsbResponse.error("SYSTEM_ERROR", 
                 "INTERNAL_ERROR", "System error occurred: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return completed(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response));
         }
     }
     
+    /**
+     * Batch endpoint - accepts a JSON array of ESB envelopes and routes them in parallel.
+     * Results come back in input order with a status per item.
+     */
+    @PostMapping("/route/batch")
+    public DeferredResult<ResponseEntity<EsbBatchResponse>> routeBatchRequest(@RequestBody byte[] body,
+                                                                             HttpServletRequest httpRequest) {
+        long startTime = System.currentTimeMillis();
+        DeferredResult<ResponseEntity<EsbBatchResponse>> result = new DeferredResult<>(batchTimeout);
+        
+        try {
+            List<EsbEnvelope> envelopes = envelopeParser.readBatch(body);
+            logger.info("Received ESB batch request: size={}", envelopes.size());
+            
+            if (envelopes.isEmpty() || envelopes.size() > batchMaxSize) {
+                result.setResult(ResponseEntity.badRequest().body(EsbBatchResponse.error("VALIDATION_ERROR", 
+                    "Batch must contain between 1 and " + batchMaxSize + " requests")));
+                return result;
+            }
+            
+            // Invalid items are answered in place, only valid ones are dispatched
+            EsbResponse[] responses = new EsbResponse[envelopes.size()];
+            List<EsbRequest> dispatched = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < envelopes.size(); i++) {
+                EsbRequest esbRequest = convertToEsbRequest(envelopes.get(i));
+                if (esbRouterService.isValidRequest(esbRequest)) {
+                    dispatched.add(esbRequest);
+                    positions.add(i);
+                } else {
+                    responses[i] = EsbResponse.error("INVALID_REQUEST", 
+                        "VALIDATION_ERROR", "Invalid request parameters");
+                }
+            }
+            
+            result.onTimeout(() -> {
+                logger.warn("ESB batch request timed out after {}ms: size={}", batchTimeout, envelopes.size());
+                result.setResult(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(EsbBatchResponse.timeout(batchTimeout)));
+            });
+            
+            String sourceIp = getClientIpAddress(httpRequest);
+            esbRouterService.processBatchAsync(dispatched, sourceIp).whenComplete((processed, ex) -> {
+                if (ex != null) {
+                    logger.error("Error processing batch request", ex);
+                    result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(EsbBatchResponse.error("INTERNAL_ERROR", "Batch routing error: " + ex.getMessage())));
+                    return;
+                }
+                
+                for (int i = 0; i < processed.size(); i++) {
+                    responses[positions.get(i)] = processed.get(i);
+                }
+                EsbBatchResponse batchResponse = EsbBatchResponse.of(Arrays.asList(responses));
+                batchResponse.setProcessingTime(System.currentTimeMillis() - startTime);
+                result.setResult(ResponseEntity.ok(batchResponse));
+            });
+            
+        } catch (JsonProcessingException e) {
+            logger.warn("Malformed ESB batch request: {}", e.getOriginalMessage());
+            result.setResult(ResponseEntity.badRequest().body(EsbBatchResponse.error("VALIDATION_ERROR", 
+                "Malformed request body: " + e.getOriginalMessage())));
+        } catch (Exception e) {
+            logger.error("Error processing batch request", e);
+            result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(EsbBatchResponse.error("INTERNAL_ERROR", "System error occurred: " + e.getMessage())));
+        }
+        
+        return result;
+    }
+    
     /**
      * NEW: Dynamic routing endpoint that forwards to existing infrastructure
      * This handles your new URL format: /route/{pluginId}/{serviceEndpoint}?esbService={serviceName}
      */
     @PostMapping("/route/{pluginId}/{serviceEndpoint}")
-    public ResponseEntity<EsbResponse> routeDynamicRequest(
+    public DeferredResult<ResponseEntity<EsbResponse>> routeDynamicRequest(
             @PathVariable String pluginId,
             @PathVariable String serviceEndpoint,
             @RequestParam(required = false) String esbService,
-            @Valid @RequestBody Object request,
+            @RequestBody byte[] body,
             HttpServletRequest httpRequest) {
         
         logger.info("Processing dynamic ESB request: pluginId={}, serviceEndpoint={}, esbService={}", 
                    pluginId, serviceEndpoint, esbService);
         
         try {
-            // Extract branch and serviceId from request
-            Map<String, Object> requestData = extractRequestData(request);
-            String branchCode = (String) requestData.get("branch");
-            String serviceId = (String) requestData.get("serviceId");
-            
-            logger.info("Extracted from request: branch={}, serviceId={}", branchCode, serviceId);
-            
-            // Convert to EsbRequest format
-            EsbRequest esbRequest = convertToEsbRequest(request);
+            // Extract branch and serviceId from request in a single pass
+            EsbEnvelope envelope = envelopeParser.read(body);
+            String serviceId = envelope.getServiceId();
             
-            // Override with extracted values
-            if (branchCode != null) {
-                esbRequest.setBranchCode(branchCode);
-            }
-            if (serviceEndpoint != null) {
-                esbRequest.setEndpoint(serviceEndpoint);
-            }
+            logger.info("Extracted from request: branch={}, serviceId={}", envelope.getBranch(), serviceId);
             
-            // Add dynamic routing parameters
-            if (esbRequest.getParameters() == null) {
-                esbRequest.setParameters(new HashMap<>());
-            }
-            esbRequest.addParameter("pluginId", pluginId);
-            esbRequest.addParameter("serviceEndpoint", serviceEndpoint);
-            if (esbService != null) {
-                esbRequest.addParameter("esbService", esbService);
-            }
-            if (serviceId != null) {
-                esbRequest.addParameter("serviceId", serviceId);
-            }
+            // Convert to EsbRequest format and apply dynamic routing parameters
+            EsbRequest esbRequest = convertToEsbRequest(envelope);
+            esbRequest.applyDynamicRoute(pluginId, serviceEndpoint, esbService, serviceId);
             
             String sourceIp = getClientIpAddress(httpRequest);
             
             // Process through existing router service
-            EsbResponse response = esbRouterService.processRequest(esbRequest, sourceIp);
-            
-            HttpStatus httpStatus = mapResponseStatus(response);
-            return ResponseEntity.status(httpStatus).body(response);
+            return dispatch(esbRequest, sourceIp);
             
+        } catch (JsonProcessingException e) {
+            logger.warn("Malformed dynamic ESB request: {}", e.getOriginalMessage());
+            return completed(ResponseEntity.badRequest().body(malformedRequest(e)));
         } catch (Exception e) {
             logger.error("Error processing dynamic request", e);
             
             EsbResponse response = EsbResponse.error("SYSTEM_ERROR", 
                 "INTERNAL_ERROR", "Dynamic routing error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return completed(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response));
+        }
+    }
+    
+    /**
+     * Streaming endpoint for large document-style payloads.
+     * The body is piped from the client to the plugin and the plugin's output back to the client without
+     * being buffered; the endpoint's plugin must implement StreamingEsbPlugin. Query parameters become
+     * plugin parameters and X-Correlation-ID / X-Source-System are taken from the request headers.
+     */
+    @PostMapping("/stream/{branchCode}/{endpoint}")
+    public void routeStreamRequest(@PathVariable String branchCode,
+                                   @PathVariable String endpoint,
+                                   HttpServletRequest httpRequest,
+                                   HttpServletResponse httpResponse) throws IOException {
+        
+        logger.info("Received streamed ESB request: branch={}, endpoint={}", branchCode, endpoint);
+        
+        EsbRequest esbRequest = new EsbRequest(branchCode, endpoint);
+        esbRequest.setMethod(httpRequest.getMethod());
+        esbRequest.setCorrelationId(httpRequest.getHeader("X-Correlation-ID"));
+        esbRequest.setSourceSystem(httpRequest.getHeader("X-Source-System"));
+        if (httpRequest.getContentType() != null) {
+            esbRequest.addHeader("Content-Type", httpRequest.getContentType());
         }
+        addQueryParameters(esbRequest, httpRequest.getQueryString());
+        
+        ServletStreamResponse streamResponse = new ServletStreamResponse(httpResponse);
+        EsbResponse response = esbRouterService.processStream(esbRequest, httpRequest.getInputStream(), 
+            streamResponse, getClientIpAddress(httpRequest));
+        
+        if (!"SUCCESS".equals(response.getStatus()) && !httpResponse.isCommitted()) {
+            httpResponse.resetBuffer();
+            httpResponse.setStatus(mapResponseStatus(response).value());
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(httpResponse.getOutputStream(), response);
+        } else if (!"SUCCESS".equals(response.getStatus())) {
+            logger.warn("Streamed response already committed, client receives a truncated body: requestId={}", 
+                       response.getRequestId());
+        }
+        httpResponse.flushBuffer();
     }
     
     /**
@@ -173,67 +298,60 @@ public class EsbDynamicRouterController {
     }
     
     /**
-     * Extract branch and serviceId from the request payload
+     * Convert parsed envelope to EsbRequest
      */
-    private Map<String, Object> extractRequestData(Object request) {
-        Map<String, Object> data = new HashMap<>();
-        
-        try {
-            if (request instanceof Map) {
-                Map<?, ?> requestMap = (Map<?, ?>) request;
-                
-                // Try to extract esbHeader information
-                Object esbHeader = requestMap.get("esbHeader");
-                if (esbHeader instanceof Map) {
-                    Map<?, ?> headerMap = (Map<?, ?>) esbHeader;
-                    data.put("branch", headerMap.get("branch"));
-                    data.put("serviceId", headerMap.get("serviceId"));
-                    data.put("sourceApplication", headerMap.get("sourceApplication"));
-                }
-                
-                // Try to extract esbBody information
-                Object esbBody = requestMap.get("esbBody");
-                if (esbBody instanceof Map) {
-                    Map<?, ?> bodyMap = (Map<?, ?>) esbBody;
-                    data.put("correlationId", bodyMap.get("correlationId"));
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Error extracting request data", e);
-        }
-        
-        return data;
+    private EsbRequest convertToEsbRequest(EsbEnvelope envelope) {
+        return EsbRequest.fromEnvelope(envelope);
     }
     
     /**
-     * Convert generic request to EsbRequest
+     * Hand the request to the router service.
+     * In async mode the container thread is released and the response is written
+     * once the plugin executor completes, or with a timeout response after esb.router.async.timeout.
      */
-    private EsbRequest convertToEsbRequest(Object request) {
-        EsbRequest esbRequest = new EsbRequest();
-        
-        // Set default values
-        esbRequest.setBranchCode("DEFAULT");
-        esbRequest.setEndpoint("default");
-        esbRequest.setPayload(request);
-        esbRequest.setTimestamp(java.time.LocalDateTime.now());
+    private DeferredResult<ResponseEntity<EsbResponse>> dispatch(EsbRequest esbRequest, String sourceIp) {
+        if (!asyncEnabled) {
+            return completed(toResponseEntity(esbRouterService.processRequest(esbRequest, sourceIp)));
+        }
         
-        // Try to extract specific values
-        Map<String, Object> requestData = extractRequestData(request);
+        DeferredResult<ResponseEntity<EsbResponse>> result = new DeferredResult<>(asyncTimeout);
+        result.onTimeout(() -> {
+            String timeoutId = requestIdGenerator.nextId();
+            logger.warn("ESB request timed out after {}ms: timeoutId={}, branch={}, endpoint={}", 
+                       asyncTimeout, timeoutId, esbRequest.getBranchCode(), esbRequest.getEndpoint());
+            result.setResult(toResponseEntity(EsbResponse.timeout(timeoutId, asyncTimeout)));
+        });
         
-        if (requestData.get("branch") != null) {
-            esbRequest.setBranchCode((String) requestData.get("branch"));
-        }
-        if (requestData.get("serviceId") != null) {
-            esbRequest.setEndpoint((String) requestData.get("serviceId"));
-        }
-        if (requestData.get("sourceApplication") != null) {
-            esbRequest.setSourceSystem((String) requestData.get("sourceApplication"));
-        }
-        if (requestData.get("correlationId") != null) {
-            esbRequest.setCorrelationId((String) requestData.get("correlationId"));
-        }
+        esbRouterService.processRequestAsync(esbRequest, sourceIp).whenComplete((response, ex) -> {
+            if (ex != null) {
+                logger.error("Error processing async request", ex);
+                EsbResponse error = EsbResponse.error("SYSTEM_ERROR", 
+                    "INTERNAL_ERROR", "System error occurred: " + ex.getMessage());
+                result.setResult(toResponseEntity(error));
+            } else if (!result.setResult(toResponseEntity(response))) {
+                logger.debug("Discarding late response for requestId: {}", response.getRequestId());
+            }
+        });
         
-        return esbRequest;
+        return result;
+    }
+    
+    private ResponseEntity<EsbResponse> toResponseEntity(EsbResponse response) {
+        return ResponseEntity.status(mapResponseStatus(response)).body(response);
+    }
+    
+    private DeferredResult<ResponseEntity<EsbResponse>> completed(ResponseEntity<EsbResponse> entity) {
+        DeferredResult<ResponseEntity<EsbResponse>> result = new DeferredResult<>();
+        result.setResult(entity);
+        return result;
+    }
+    
+    /**
+     * Build error response for a body that could not be parsed
+     */
+    private EsbResponse malformedRequest(JsonProcessingException e) {
+        return EsbResponse.error("INVALID_REQUEST", 
+            "VALIDATION_ERROR", "Malformed request body: " + e.getOriginalMessage());
     }
     
     /**
@@ -251,12 +369,31 @@ public class EsbDynamicRouterController {
                 return HttpStatus.NOT_FOUND;
             case "BUSINESS_ERROR":
                 return HttpStatus.BAD_REQUEST;
+            case "TIMEOUT":
+                return HttpStatus.GATEWAY_TIMEOUT;
             case "ERROR":
             default:
                 return HttpStatus.INTERNAL_SERVER_ERROR;
         }
     }
     
+    /**
+     * Copy query string parameters into the request.
+     * Parsed by hand because getParameter() would read a form-encoded body that must stay on the stream.
+     */
+    private void addQueryParameters(EsbRequest esbRequest, String queryString) {
+        if (queryString == null || queryString.isEmpty()) {
+            return;
+        }
+        for (String pair : queryString.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                esbRequest.addParameter(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+    
     /**
      * Get client IP address from request
      */
@@ -0,0 +1,44 @@
+package com.esb.middleware.controller;
+
+import com.esb.plugin.PluginStreamResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Plugin stream response writing straight to the servlet response
+ */
+final class ServletStreamResponse implements PluginStreamResponse {
+
+    private final HttpServletResponse httpResponse;
+
+    ServletStreamResponse(HttpServletResponse httpResponse) {
+        this.httpResponse = httpResponse;
+    }
+
+    @Override
+    public void setStatusCode(int statusCode) {
+        httpResponse.setStatus(statusCode);
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        httpResponse.setContentType(contentType);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        httpResponse.setHeader(name, value);
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return httpResponse.getOutputStream();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return httpResponse.isCommitted();
+    }
+}
@@ -0,0 +1,17 @@
+package com.esb.middleware.exception;
+
+import com.esb.plugin.PluginException;
+
+/**
+ * Thrown when a plugin call is refused before reaching the plugin,
+ * because its circuit breaker is open or its bulkhead is full.
+ */
+public class PluginRejectedException extends PluginException {
+
+    public static final String PLUGIN_NOT_AVAILABLE = "PLUGIN_NOT_AVAILABLE";
+    public static final String PLUGIN_BUSY = "PLUGIN_BUSY";
+
+    public PluginRejectedException(String pluginId, String errorCode, String message) {
+        super(pluginId, errorCode, message);
+    }
+}
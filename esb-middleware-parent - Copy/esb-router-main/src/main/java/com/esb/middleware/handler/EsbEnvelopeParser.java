@@ -0,0 +1,229 @@
+package com.esb.middleware.handler;
+
+import com.esb.middleware.model.EsbEnvelope;
+import com.esb.middleware.model.EsbRequestModel;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass parser for incoming ESB envelopes.
+ * Pulls the routing fields out of the raw request bytes with a streaming JsonParser
+ * instead of binding the whole body into a Map tree first.
+ */
+@Component
+public class EsbEnvelopeParser {
+
+    private static final String ESB_HEADER = "esbHeader";
+    private static final String ESB_BODY = "esbBody";
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    @Value("${esb.ingress.typed-binding:false}")
+    private boolean typedBinding;
+
+    public EsbEnvelopeParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Read envelope using the configured binding mode
+     */
+    public EsbEnvelope read(byte[] body) throws IOException {
+        return typedBinding ? bind(body) : parse(body);
+    }
+
+    /**
+     * Extract routing fields in one streaming pass, keeping the original bytes
+     */
+    public EsbEnvelope parse(byte[] body) throws IOException {
+        EsbEnvelope envelope = new EsbEnvelope(body);
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "ESB request must be a JSON object");
+            }
+            if (readEnvelope(parser, envelope)) {
+                skipRemainingFields(parser);
+            }
+            requireEnd(parser);
+        }
+
+        return envelope;
+    }
+
+    /**
+     * Read a JSON array of envelopes in one pass.
+     * Each element keeps its own slice of the original bytes as raw body.
+     */
+    public List<EsbEnvelope> readBatch(byte[] body) throws IOException {
+        List<EsbEnvelope> envelopes = new ArrayList<>();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "ESB batch request must be a JSON array");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                EsbEnvelope envelope = new EsbEnvelope();
+
+                if (typedBinding) {
+                    bindFields(envelope, objectMapper.readValue(parser, EsbRequestModel.class));
+                } else if (readEnvelope(parser, envelope)) {
+                    skipRemainingFields(parser);
+                }
+
+                // Parser now sits on the element's closing brace
+                int end = (int) parser.getTokenLocation().getByteOffset() + 1;
+                envelope.setRawBody(Arrays.copyOfRange(body, start, end));
+                if (envelope.getRequestModel() != null) {
+                    envelope.getRequestModel().setRawBody(envelope.getRawBody());
+                }
+                envelopes.add(envelope);
+            }
+
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "ESB batch elements must be JSON objects");
+            }
+            requireEnd(parser);
+        }
+
+        return envelopes;
+    }
+
+    /**
+     * Bind the full body into the typed EsbRequestModel
+     */
+    public EsbEnvelope bind(byte[] body) throws IOException {
+        EsbRequestModel requestModel = objectMapper.readValue(body, EsbRequestModel.class);
+        requestModel.setRawBody(body);
+
+        EsbEnvelope envelope = new EsbEnvelope(body);
+        bindFields(envelope, requestModel);
+
+        return envelope;
+    }
+
+    private void bindFields(EsbEnvelope envelope, EsbRequestModel requestModel) {
+        envelope.setRequestModel(requestModel);
+
+        if (requestModel.getEsbHeader() != null) {
+            envelope.setBranch(requestModel.getEsbHeader().getBranch());
+            envelope.setServiceId(requestModel.getEsbHeader().getServiceId());
+            envelope.setSourceApplication(requestModel.getEsbHeader().getSourceApplication());
+        }
+        if (requestModel.getEsbBody() != null) {
+            envelope.setCorrelationId(requestModel.getEsbBody().getCorrelationId());
+        }
+    }
+
+    /**
+     * Walk the top-level object until both sections have been seen.
+     * Fields after that are left to the caller, which skips them without reading values.
+     * @return true if it stopped early, leaving the parser inside the object
+     */
+    private boolean readEnvelope(JsonParser parser, EsbEnvelope envelope) throws IOException {
+        boolean headerRead = false;
+        boolean bodyRead = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String section = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.START_OBJECT && ESB_HEADER.equals(section)) {
+                readHeader(parser, envelope);
+                headerRead = true;
+            } else if (token == JsonToken.START_OBJECT && ESB_BODY.equals(section)) {
+                bodyRead = true;
+                if (readCorrelationId(parser, envelope)) {
+                    skipRemainingFields(parser);
+                }
+            } else {
+                parser.skipChildren();
+            }
+
+            if (headerRead && bodyRead) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void readHeader(JsonParser parser, EsbEnvelope envelope) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.VALUE_STRING) {
+                switch (field) {
+                    case "branch":
+                        envelope.setBranch(parser.getText());
+                        break;
+                    case "serviceId":
+                        envelope.setServiceId(parser.getText());
+                        break;
+                    case "sourceApplication":
+                        envelope.setSourceApplication(parser.getText());
+                        break;
+                    default:
+                        break;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Read esbBody up to the correlation ID.
+     * @return true if the parser was left inside esbBody after finding the correlation ID
+     */
+    private boolean readCorrelationId(JsonParser parser, EsbEnvelope envelope) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.VALUE_STRING && "correlationId".equals(field)) {
+                envelope.setCorrelationId(parser.getText());
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Check the parser closed the top-level value and nothing follows it
+     */
+    private void requireEnd(JsonParser parser) throws IOException {
+        JsonToken closing = parser.currentToken();
+        if (closing != JsonToken.END_OBJECT && closing != JsonToken.END_ARRAY) {
+            throw new JsonParseException(parser, "ESB request is not a complete JSON value");
+        }
+        if (parser.nextToken() != null) {
+            throw new JsonParseException(parser, "Unexpected content after ESB request");
+        }
+    }
+
+    /**
+     * Consume the rest of the object the parser is currently positioned in
+     */
+    private void skipRemainingFields(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+}
@@ -18,6 +18,11 @@ public interface AuditLogMapper {
      */
     int insert(AuditLog auditLog);
     
+    /**
+     * Insert completed audit log entries in one multi-row statement
+     */
+    int insertBatch(@Param("auditLogs") List<AuditLog> auditLogs);
+    
     /**
      * Update audit log entry
      */
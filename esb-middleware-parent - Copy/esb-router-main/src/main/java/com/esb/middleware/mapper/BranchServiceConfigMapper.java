@@ -4,6 +4,7 @@ import com.esb.middleware.model.BranchServiceConfig;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -30,6 +31,11 @@ public interface BranchServiceConfigMapper {
      */
     List<BranchServiceConfig> findAll();
     
+    /**
+     * Find services modified at or after a point in time, enabled or not
+     */
+    List<BranchServiceConfig> findModifiedSince(@Param("since") LocalDateTime since);
+    
     /**
      * Find services by plugin ID
      */
@@ -40,13 +46,23 @@ public interface BranchServiceConfigMapper {
      */
     int insert(BranchServiceConfig serviceConfig);
     
+    /**
+     * Insert service configuration without reading back the generated key, for JDBC batches
+     */
+    int insertWithoutKey(BranchServiceConfig serviceConfig);
+    
+    /**
+     * Insert service configuration, or update the existing row with the same branch and key
+     */
+    int upsert(BranchServiceConfig serviceConfig);
+    
     /**
      * Update existing service configuration
      */
     int update(BranchServiceConfig serviceConfig);
     
     /**
-     * Delete service configuration by ID
+     * Delete service configuration by ID, recording a tombstone
      */
     int deleteById(@Param("id") Long id);
     
@@ -0,0 +1,31 @@
+package com.esb.middleware.mapper;
+
+import com.esb.middleware.model.ConfigTombstone;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * MyBatis mapper for config_tombstone, written by the route and service deletes
+ */
+@Mapper
+public interface ConfigTombstoneMapper {
+    
+    /**
+     * Find tombstones of a config type recorded at or after a point in time
+     */
+    List<ConfigTombstone> findDeletedSince(@Param("configType") String configType,
+                                          @Param("since") LocalDateTime since);
+    
+    /**
+     * Current database time, used as the delta sync watermark
+     */
+    LocalDateTime selectCurrentTime();
+    
+    /**
+     * Delete old tombstones (for cleanup)
+     */
+    int deleteOldTombstones(@Param("beforeDate") LocalDateTime beforeDate);
+}
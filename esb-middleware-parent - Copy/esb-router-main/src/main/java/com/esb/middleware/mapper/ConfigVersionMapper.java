@@ -0,0 +1,24 @@
+package com.esb.middleware.mapper;
+
+import com.esb.middleware.model.ConfigVersion;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * MyBatis mapper for config_version, one row per config type
+ */
+@Mapper
+public interface ConfigVersionMapper {
+    
+    /**
+     * Find current versions of all config types
+     */
+    List<ConfigVersion> findAll();
+    
+    /**
+     * Increment the version of a config type, creating its row if missing
+     */
+    int incrementVersion(@Param("configType") String configType);
+}
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -33,6 +34,11 @@ public interface PluginConfigMapper {
      */
     PluginConfigModel findByJarFileName(@Param("jarFileName") String jarFileName);
     
+    /**
+     * Find plugins by JAR file names in one query
+     */
+    List<PluginConfigModel> findByJarFileNames(@Param("jarFileNames") Collection<String> jarFileNames);
+    
     /**
      * Insert new plugin configuration
      */
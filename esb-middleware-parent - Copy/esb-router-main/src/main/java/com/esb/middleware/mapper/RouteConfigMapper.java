@@ -4,6 +4,7 @@ import com.esb.middleware.model.RouteConfig;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -33,6 +34,11 @@ public interface RouteConfigMapper {
      */
     List<RouteConfig> findAll();
     
+    /**
+     * Find routes modified at or after a point in time, enabled or not
+     */
+    List<RouteConfig> findModifiedSince(@Param("since") LocalDateTime since);
+    
     /**
      * Find routes by plugin ID
      */
@@ -43,13 +49,23 @@ public interface RouteConfigMapper {
      */
     int insert(RouteConfig routeConfig);
     
+    /**
+     * Insert route configuration without reading back the generated key, for JDBC batches
+     */
+    int insertWithoutKey(RouteConfig routeConfig);
+    
+    /**
+     * Insert route configuration, or update the existing row with the same branch and key
+     */
+    int upsert(RouteConfig routeConfig);
+    
     /**
      * Update existing route configuration
      */
     int update(RouteConfig routeConfig);
     
     /**
-     * Delete route configuration by ID
+     * Delete route configuration by ID, recording a tombstone
      */
     int deleteById(@Param("id") Long id);
     
@@ -16,6 +16,11 @@ public class BranchServiceConfig {
     private int retryCount;
     private Map<String, String> headers;
     private Map<String, String> parameters;
+    // Response cache TTL, 0 = responses are not cached
+    private int cacheTtlMs;
+    // Comma-separated request fields forming the response cache key: a plain name is a field of esbBody
+    // (or of the body when it is no envelope), nested fields need a dotted path, e.g. "tradeId,esbHeader.branch"
+    private String cacheKeyFields;
     private LocalDateTime createdDate;
     private LocalDateTime modifiedDate;
     private String createdBy;
@@ -71,6 +76,12 @@ public class BranchServiceConfig {
     public Map<String, String> getParameters() { return parameters; }
     public void setParameters(Map<String, String> parameters) { this.parameters = parameters; }
     
+    public int getCacheTtlMs() { return cacheTtlMs; }
+    public void setCacheTtlMs(int cacheTtlMs) { this.cacheTtlMs = cacheTtlMs; }
+    
+    public String getCacheKeyFields() { return cacheKeyFields; }
+    public void setCacheKeyFields(String cacheKeyFields) { this.cacheKeyFields = cacheKeyFields; }
+    
     public LocalDateTime getCreatedDate() { return createdDate; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
     
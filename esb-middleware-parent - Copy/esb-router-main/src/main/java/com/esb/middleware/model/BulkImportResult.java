@@ -0,0 +1,153 @@
+package com.esb.middleware.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a bulk route or service import, with one error entry per rejected row
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportResult {
+
+    private String status;
+    private int totalCount;
+    private int successCount;
+    private int failureCount;
+    private List<RowError> errors;
+    private long processingTime;
+
+    public BulkImportResult() {
+        this.errors = new ArrayList<>();
+        this.status = "SUCCESS";
+    }
+
+    public BulkImportResult(int totalCount) {
+        this();
+        this.totalCount = totalCount;
+    }
+
+    public void addSuccess(int count) {
+        this.successCount += count;
+    }
+
+    public void addError(int index, String key, String message) {
+        this.errors.add(new RowError(index, key, message));
+        this.failureCount++;
+    }
+
+    /**
+     * Derive the overall status once all rows are processed
+     */
+    public void complete(long processingTime) {
+        this.processingTime = processingTime;
+        if (successCount == 0 && failureCount > 0) {
+            this.status = "ERROR";
+        } else if (failureCount > 0) {
+            this.status = "PARTIAL";
+        }
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public long getProcessingTime() {
+        return processingTime;
+    }
+
+    public void setProcessingTime(long processingTime) {
+        this.processingTime = processingTime;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkImportResult{" +
+                "status='" + status + '\'' +
+                ", totalCount=" + totalCount +
+                ", successCount=" + successCount +
+                ", failureCount=" + failureCount +
+                ", processingTime=" + processingTime +
+                '}';
+    }
+
+    /**
+     * Rejected row, identified by its position in the submitted list
+     */
+    public static class RowError {
+
+        private int index;
+        private String key;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(int index, String key, String message) {
+            this.index = index;
+            this.key = key;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
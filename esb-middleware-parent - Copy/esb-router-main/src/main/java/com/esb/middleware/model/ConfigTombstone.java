@@ -0,0 +1,81 @@
+package com.esb.middleware.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of a deleted route or service configuration row, used by delta sync
+ */
+public class ConfigTombstone {
+    
+    public static final String TYPE_ROUTE = "ROUTE";
+    public static final String TYPE_SERVICE = "SERVICE";
+    
+    private Long id;
+    private String configType;
+    private Long configId;
+    private String branchCode;
+    private String configKey;
+    private LocalDateTime deletedDate;
+    
+    public ConfigTombstone() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getConfigType() {
+        return configType;
+    }
+    
+    public void setConfigType(String configType) {
+        this.configType = configType;
+    }
+    
+    public Long getConfigId() {
+        return configId;
+    }
+    
+    public void setConfigId(Long configId) {
+        this.configId = configId;
+    }
+    
+    public String getBranchCode() {
+        return branchCode;
+    }
+    
+    public void setBranchCode(String branchCode) {
+        this.branchCode = branchCode;
+    }
+    
+    public String getConfigKey() {
+        return configKey;
+    }
+    
+    public void setConfigKey(String configKey) {
+        this.configKey = configKey;
+    }
+    
+    public LocalDateTime getDeletedDate() {
+        return deletedDate;
+    }
+    
+    public void setDeletedDate(LocalDateTime deletedDate) {
+        this.deletedDate = deletedDate;
+    }
+    
+    @Override
+    public String toString() {
+        return "ConfigTombstone{" +
+                "configType='" + configType + '\'' +
+                ", configId=" + configId +
+                ", branchCode='" + branchCode + '\'' +
+                ", configKey='" + configKey + '\'' +
+                ", deletedDate=" + deletedDate +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.esb.middleware.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version counter of a config type, bumped on every change to notify other nodes
+ */
+public class ConfigVersion {
+    
+    private String configType;
+    private long version;
+    private LocalDateTime modifiedDate;
+    
+    public ConfigVersion() {}
+    
+    // Getters and Setters
+    public String getConfigType() {
+        return configType;
+    }
+    
+    public void setConfigType(String configType) {
+        this.configType = configType;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public LocalDateTime getModifiedDate() {
+        return modifiedDate;
+    }
+    
+    public void setModifiedDate(LocalDateTime modifiedDate) {
+        this.modifiedDate = modifiedDate;
+    }
+    
+    @Override
+    public String toString() {
+        return "ConfigVersion{" +
+                "configType='" + configType + '\'' +
+                ", version=" + version +
+                ", modifiedDate=" + modifiedDate +
+                '}';
+    }
+}
@@ -0,0 +1,154 @@
+package com.esb.middleware.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ESB batch response model, results are in the same order as the submitted envelopes
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EsbBatchResponse {
+
+    private String status;
+    private int totalCount;
+    private int successCount;
+    private int failureCount;
+    private List<EsbResponse> results;
+    private LocalDateTime timestamp;
+    private long processingTime;
+    private String errorCode;
+    private String errorMessage;
+
+    public EsbBatchResponse() {
+        this.results = new ArrayList<>();
+        this.timestamp = LocalDateTime.now();
+        this.status = "SUCCESS";
+    }
+
+    // Static factory methods
+    public static EsbBatchResponse of(List<EsbResponse> results) {
+        EsbBatchResponse response = new EsbBatchResponse();
+        response.setResults(results);
+        response.setTotalCount(results.size());
+
+        int successCount = 0;
+        for (EsbResponse result : results) {
+            if (result.isSuccess()) {
+                successCount++;
+            }
+        }
+        response.setSuccessCount(successCount);
+        response.setFailureCount(results.size() - successCount);
+
+        if (successCount == 0 && !results.isEmpty()) {
+            response.setStatus("ERROR");
+        } else if (successCount < results.size()) {
+            response.setStatus("PARTIAL");
+        }
+        return response;
+    }
+
+    public static EsbBatchResponse error(String errorCode, String errorMessage) {
+        EsbBatchResponse response = new EsbBatchResponse();
+        response.setStatus("ERROR");
+        response.setErrorCode(errorCode);
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
+
+    public static EsbBatchResponse timeout(long timeoutMillis) {
+        EsbBatchResponse response = error("REQUEST_TIMEOUT",
+            "Batch not completed within " + timeoutMillis + "ms");
+        response.setStatus("TIMEOUT");
+        return response;
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public List<EsbResponse> getResults() {
+        return results;
+    }
+
+    public void setResults(List<EsbResponse> results) {
+        this.results = results;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getProcessingTime() {
+        return processingTime;
+    }
+
+    public void setProcessingTime(long processingTime) {
+        this.processingTime = processingTime;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "EsbBatchResponse{" +
+                "status='" + status + '\'' +
+                ", totalCount=" + totalCount +
+                ", successCount=" + successCount +
+                ", failureCount=" + failureCount +
+                ", processingTime=" + processingTime +
+                '}';
+    }
+}
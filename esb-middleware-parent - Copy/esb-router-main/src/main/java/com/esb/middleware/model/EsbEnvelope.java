@@ -0,0 +1,90 @@
+package com.esb.middleware.model;
+
+/**
+ * Routing view of an incoming ESB envelope.
+ * Holds the header fields needed for routing together with the original request bytes,
+ * so the body only has to be decoded again by whoever actually needs its content.
+ */
+public class EsbEnvelope {
+
+    private byte[] rawBody;
+    private String branch;
+    private String serviceId;
+    private String sourceApplication;
+    private String correlationId;
+    private EsbRequestModel requestModel;
+
+    public EsbEnvelope() {
+    }
+
+    public EsbEnvelope(byte[] rawBody) {
+        this.rawBody = rawBody;
+    }
+
+    // Getters and Setters
+    public byte[] getRawBody() {
+        return rawBody;
+    }
+
+    public void setRawBody(byte[] rawBody) {
+        this.rawBody = rawBody;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public void setBranch(String branch) {
+        this.branch = branch;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public String getSourceApplication() {
+        return sourceApplication;
+    }
+
+    public void setSourceApplication(String sourceApplication) {
+        this.sourceApplication = sourceApplication;
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public void setCorrelationId(String correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Typed request model, only present when the envelope was bound with typed binding
+     */
+    public EsbRequestModel getRequestModel() {
+        return requestModel;
+    }
+
+    public void setRequestModel(EsbRequestModel requestModel) {
+        this.requestModel = requestModel;
+    }
+
+    public int getSize() {
+        return rawBody != null ? rawBody.length : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "EsbEnvelope{" +
+                "branch='" + branch + '\'' +
+                ", serviceId='" + serviceId + '\'' +
+                ", sourceApplication='" + sourceApplication + '\'' +
+                ", correlationId='" + correlationId + '\'' +
+                ", size=" + getSize() +
+                '}';
+    }
+}
@@ -1,9 +1,13 @@
 package com.esb.middleware.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import javax.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,6 +19,8 @@ import java.util.Map;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class EsbRequest {
     
+    private static final ObjectMapper payloadMapper = new ObjectMapper();
+    
     @NotBlank(message = "Branch code is required")
     private String branchCode;
     
@@ -29,6 +35,10 @@ public class EsbRequest {
     private String correlationId;
     private LocalDateTime timestamp;
     
+    // Original request body; payload is only decoded from it on first access
+    @JsonIgnore
+    private byte[] rawBody;
+    
     public EsbRequest() {
         this.headers = new HashMap<>();
         this.parameters = new HashMap<>();
@@ -41,6 +51,58 @@ public class EsbRequest {
         this.endpoint = endpoint;
     }
     
+    /**
+     * Build request from a parsed ingress envelope
+     */
+    public static EsbRequest fromEnvelope(EsbEnvelope envelope) {
+        EsbRequest esbRequest = new EsbRequest();
+        
+        // Set default values
+        esbRequest.setBranchCode("DEFAULT");
+        esbRequest.setEndpoint("default");
+        esbRequest.setRawBody(envelope.getRawBody());
+        
+        // Typed binding already produced the payload object
+        if (envelope.getRequestModel() != null) {
+            esbRequest.setPayload(envelope.getRequestModel());
+        }
+        
+        if (envelope.getBranch() != null) {
+            esbRequest.setBranchCode(envelope.getBranch());
+        }
+        if (envelope.getServiceId() != null) {
+            esbRequest.setEndpoint(envelope.getServiceId());
+        }
+        if (envelope.getSourceApplication() != null) {
+            esbRequest.setSourceSystem(envelope.getSourceApplication());
+        }
+        if (envelope.getCorrelationId() != null) {
+            esbRequest.setCorrelationId(envelope.getCorrelationId());
+        }
+        
+        return esbRequest;
+    }
+    
+    /**
+     * Apply path values of the dynamic route /route/{pluginId}/{serviceEndpoint}?esbService=
+     */
+    public void applyDynamicRoute(String pluginId, String serviceEndpoint, String esbService, String serviceId) {
+        // Override with path values
+        if (serviceEndpoint != null) {
+            setEndpoint(serviceEndpoint);
+        }
+        
+        // Add dynamic routing parameters
+        addParameter("pluginId", pluginId);
+        addParameter("serviceEndpoint", serviceEndpoint);
+        if (esbService != null) {
+            addParameter("esbService", esbService);
+        }
+        if (serviceId != null) {
+            addParameter("serviceId", serviceId);
+        }
+    }
+    
     // Getters and Setters
     public String getBranchCode() {
         return branchCode;
@@ -67,6 +129,9 @@ public class EsbRequest {
     }
     
     public Object getPayload() {
+        if (payload == null && rawBody != null) {
+            payload = decodeRawBody();
+        }
         return payload;
     }
     
@@ -114,6 +179,20 @@ public class EsbRequest {
         this.timestamp = timestamp;
     }
     
+    @JsonIgnore
+    public byte[] getRawBody() {
+        return rawBody;
+    }
+    
+    @JsonIgnore
+    public void setRawBody(byte[] rawBody) {
+        this.rawBody = rawBody;
+    }
+    
+    public boolean hasRawBody() {
+        return rawBody != null;
+    }
+    
     // Helper methods
     public void addHeader(String key, Object value) {
         if (this.headers == null) {
@@ -129,6 +208,14 @@ public class EsbRequest {
         this.parameters.put(key, value);
     }
     
+    private Object decodeRawBody() {
+        try {
+            return payloadMapper.readValue(rawBody, Object.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode request body", e);
+        }
+    }
+    
     @Override
     public String toString() {
         return "EsbRequest{" +
@@ -1,5 +1,6 @@
 package com.esb.middleware.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import javax.validation.Valid;
@@ -17,6 +18,10 @@ public class EsbRequestModel {
     @NotNull
     private EsbBody esbBody;
     
+    // Original request bytes the model was bound from, if any
+    @JsonIgnore
+    private byte[] rawBody;
+    
     // Getters and setters
     public EsbHeader getEsbHeader() { return esbHeader; }
     public void setEsbHeader(EsbHeader esbHeader) { this.esbHeader = esbHeader; }
@@ -24,6 +29,11 @@ public class EsbRequestModel {
     public EsbBody getEsbBody() { return esbBody; }
     public void setEsbBody(EsbBody esbBody) { this.esbBody = esbBody; }
     
+    @JsonIgnore
+    public byte[] getRawBody() { return rawBody; }
+    @JsonIgnore
+    public void setRawBody(byte[] rawBody) { this.rawBody = rawBody; }
+    
     public static class EsbHeader {
         private String country;
         private String targetApplication;
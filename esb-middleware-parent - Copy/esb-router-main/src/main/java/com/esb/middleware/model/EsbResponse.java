@@ -65,6 +65,16 @@ public class EsbResponse {
         return response;
     }
     
+    public static EsbResponse timeout(String requestId, long timeoutMillis) {
+        EsbResponse response = new EsbResponse(requestId);
+        response.setStatus("TIMEOUT");
+        response.setStatusCode("504");
+        response.setErrorCode("REQUEST_TIMEOUT");
+        response.setErrorMessage("Request not completed within " + timeoutMillis + "ms");
+        response.setMessage("Request processing timed out");
+        return response;
+    }
+    
     public static EsbResponse notFound(String requestId, String branchCode, String endpoint) {
         EsbResponse response = new EsbResponse(requestId);
         response.setStatus("NOT_FOUND");
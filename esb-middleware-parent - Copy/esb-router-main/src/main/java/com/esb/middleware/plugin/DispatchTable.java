@@ -0,0 +1,108 @@
+package com.esb.middleware.plugin;
+
+import com.esb.plugin.EsbPlugin;
+import com.esb.plugin.PluginMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the plugin registry for request dispatch.
+ * The winning plugin per endpoint is resolved when the snapshot is built, so dispatch
+ * is one map read. The registry builds a new snapshot on every change and publishes it whole.
+ */
+final class DispatchTable {
+
+    static final DispatchTable EMPTY = new DispatchTable(Collections.emptyMap(), Collections.emptyMap(),
+                                                         Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, PluginInstance> instancesById;
+    private final Map<EsbPlugin, PluginInstance> instancesByPlugin;
+    private final Map<String, String> bestPluginIdByEndpoint;
+    private final Map<String, List<String>> pluginIdsByEndpoint;
+
+    private DispatchTable(Map<String, PluginInstance> instancesById, Map<EsbPlugin, PluginInstance> instancesByPlugin,
+                          Map<String, String> bestPluginIdByEndpoint, Map<String, List<String>> pluginIdsByEndpoint) {
+        this.instancesById = instancesById;
+        this.instancesByPlugin = instancesByPlugin;
+        this.bestPluginIdByEndpoint = bestPluginIdByEndpoint;
+        this.pluginIdsByEndpoint = pluginIdsByEndpoint;
+    }
+
+    /**
+     * Build a snapshot from registered plugins.
+     * The best plugin for an endpoint is the enabled one with the highest priority,
+     * ties go to the plugin registered first.
+     */
+    static DispatchTable build(Map<String, PluginInstance> instances, Map<String, PluginMetadata> metadata,
+                               Map<String, Long> registrationOrder) {
+        List<String> pluginIds = new ArrayList<>(instances.keySet());
+        pluginIds.sort(Comparator.comparing((String id) -> registrationOrder.getOrDefault(id, Long.MAX_VALUE))
+                                 .thenComparing(Comparator.naturalOrder()));
+
+        Map<String, List<String>> pluginIdsByEndpoint = new HashMap<>();
+        Map<String, String> bestPluginIdByEndpoint = new HashMap<>();
+        Map<String, Integer> bestPriority = new HashMap<>();
+
+        for (String pluginId : pluginIds) {
+            PluginMetadata pluginMetadata = metadata.get(pluginId);
+            if (pluginMetadata == null || pluginMetadata.getSupportedEndpoints() == null) {
+                continue;
+            }
+            for (String endpoint : pluginMetadata.getSupportedEndpoints()) {
+                pluginIdsByEndpoint.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(pluginId);
+
+                Integer currentBest = bestPriority.get(endpoint);
+                if (pluginMetadata.isEnabled() && (currentBest == null || pluginMetadata.getPriority() > currentBest)) {
+                    bestPriority.put(endpoint, pluginMetadata.getPriority());
+                    bestPluginIdByEndpoint.put(endpoint, pluginId);
+                }
+            }
+        }
+
+        // Keyed by identity, so a plugin class overriding equals() cannot be confused with another instance
+        Map<EsbPlugin, PluginInstance> instancesByPlugin = new IdentityHashMap<>();
+        for (PluginInstance instance : instances.values()) {
+            instancesByPlugin.put(instance.getPlugin(), instance);
+        }
+
+        pluginIdsByEndpoint.replaceAll((endpoint, ids) -> Collections.unmodifiableList(ids));
+        return new DispatchTable(Collections.unmodifiableMap(new HashMap<>(instances)),
+                                 Collections.unmodifiableMap(instancesByPlugin),
+                                 Collections.unmodifiableMap(bestPluginIdByEndpoint),
+                                 Collections.unmodifiableMap(pluginIdsByEndpoint));
+    }
+
+    EsbPlugin getPlugin(String pluginId) {
+        PluginInstance instance = pluginId != null ? instancesById.get(pluginId) : null;
+        return instance != null ? instance.getPlugin() : null;
+    }
+
+    /**
+     * @return Registered instance wrapping the plugin, or null if the plugin is not (or no longer) registered
+     */
+    PluginInstance getInstance(EsbPlugin plugin) {
+        return plugin != null ? instancesByPlugin.get(plugin) : null;
+    }
+
+    String getBestPluginId(String endpoint) {
+        return endpoint != null ? bestPluginIdByEndpoint.get(endpoint) : null;
+    }
+
+    EsbPlugin getBestPlugin(String endpoint) {
+        return getPlugin(getBestPluginId(endpoint));
+    }
+
+    List<String> getPluginIds(String endpoint) {
+        return pluginIdsByEndpoint.getOrDefault(endpoint, Collections.emptyList());
+    }
+
+    Map<String, List<String>> getPluginIdsByEndpoint() {
+        return pluginIdsByEndpoint;
+    }
+}
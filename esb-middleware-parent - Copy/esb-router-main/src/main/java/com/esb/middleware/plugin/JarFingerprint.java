@@ -0,0 +1,91 @@
+package com.esb.middleware.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Size, modification time and SHA-256 of a plugin JAR.
+ * The hash decides whether a JAR really changed; size and time only decide whether it is worth re-hashing.
+ */
+public final class JarFingerprint {
+
+    private final String fileName;
+    private final long size;
+    private final long lastModified;
+    private final String sha256;
+
+    private JarFingerprint(String fileName, long size, long lastModified, String sha256) {
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Fingerprint a JAR, reusing the previous hash when size and modification time are unchanged
+     * @param previous Last fingerprint of the same file, may be null
+     */
+    public static JarFingerprint of(File jarFile, JarFingerprint previous) throws IOException {
+        long size = jarFile.length();
+        long lastModified = jarFile.lastModified();
+        if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+            return previous;
+        }
+        return new JarFingerprint(jarFile.getName(), size, lastModified, sha256(jarFile));
+    }
+
+    /**
+     * @return true if the JAR content differs from the other fingerprint
+     */
+    public boolean contentDiffers(JarFingerprint other) {
+        return other == null || !sha256.equals(other.sha256);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return fileName + "@" + sha256.substring(0, 12);
+    }
+}
@@ -0,0 +1,151 @@
+package com.esb.middleware.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Class loader for one plugin JAR.
+ * JAR entries are indexed once when the loader is created, so lookups for classes the JAR
+ * does not contain go straight to the parent without touching the JAR. Classes in the shared
+ * packages always come from the parent (the shared library layer), so plugins bundling their own
+ * Jackson or HttpClient do not load a private copy. Everything else in the JAR is loaded plugin-first.
+ */
+public class PluginClassLoader extends URLClassLoader {
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final String pluginId;
+    private final List<String> sharedPackages;
+    private final Map<String, Long> classEntrySizes;
+    private final Set<String> resourceEntries;
+
+    private final LongAdder classesLoaded = new LongAdder();
+    private final LongAdder classBytesLoaded = new LongAdder();
+
+    /**
+     * @param sharedLayer Parent loader serving the shared packages and the application classes
+     * @param sharedPackages Package prefixes (ending in '.') always delegated to the shared layer
+     */
+    public PluginClassLoader(String pluginId, File jarFile, ClassLoader sharedLayer, List<String> sharedPackages)
+            throws IOException {
+        super(new URL[]{jarFile.toURI().toURL()}, sharedLayer);
+        this.pluginId = pluginId;
+        this.sharedPackages = sharedPackages;
+
+        Map<String, Long> classes = new HashMap<>();
+        Set<String> resources = new HashSet<>();
+        try (JarFile jar = new JarFile(jarFile)) {
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String entryName = entry.getName();
+                resources.add(entryName);
+                if (entryName.endsWith(".class") && !entryName.startsWith("META-INF/")) {
+                    String className = entryName.substring(0, entryName.length() - 6).replace('/', '.');
+                    classes.put(className, entry.getSize());
+                }
+            }
+        }
+        this.classEntrySizes = classes;
+        this.resourceEntries = resources;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass == null) {
+                if (!isShared(name) && classEntrySizes.containsKey(name)) {
+                    loadedClass = findClass(name);
+                } else {
+                    loadedClass = getParent().loadClass(name);
+                }
+            }
+            if (resolve) {
+                resolveClass(loadedClass);
+            }
+            return loadedClass;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Long size = classEntrySizes.get(name);
+        if (size == null) {
+            throw new ClassNotFoundException(name);
+        }
+        Class<?> definedClass = super.findClass(name);
+        classesLoaded.increment();
+        if (size > 0) {
+            classBytesLoaded.add(size);
+        }
+        return definedClass;
+    }
+
+    @Override
+    public URL getResource(String name) {
+        if (resourceEntries.contains(name) && !isShared(name.replace('/', '.'))) {
+            URL url = findResource(name);
+            if (url != null) {
+                return url;
+            }
+        }
+        return getParent().getResource(name);
+    }
+
+    /**
+     * Get class loading statistics: classes defined by this loader, the bytecode size of those
+     * classes (an estimate of the metaspace they use) and the number of indexed JAR entries
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("classesLoaded", classesLoaded.sum());
+        stats.put("classBytesLoaded", classBytesLoaded.sum());
+        stats.put("indexedClasses", classEntrySizes.size());
+        stats.put("indexedEntries", resourceEntries.size());
+        return stats;
+    }
+
+    public long getClassesLoaded() {
+        return classesLoaded.sum();
+    }
+
+    public long getClassBytesLoaded() {
+        return classBytesLoaded.sum();
+    }
+
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    private boolean isShared(String name) {
+        if (name.startsWith("java.")) {
+            return true;
+        }
+        for (String sharedPackage : sharedPackages) {
+            if (name.startsWith(sharedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "PluginClassLoader{pluginId='" + pluginId + "'}";
+    }
+}
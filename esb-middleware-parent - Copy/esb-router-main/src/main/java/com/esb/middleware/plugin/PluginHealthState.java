@@ -0,0 +1,91 @@
+package com.esb.middleware.plugin;
+
+/**
+ * Last known health of a plugin, written by the health prober and read on the request path.
+ * Instances are immutable; each probe result replaces the previous state.
+ */
+public final class PluginHealthState {
+
+    /**
+     * State of a plugin that has not been probed yet; treated as healthy until the first probe
+     */
+    static final PluginHealthState UNKNOWN = new PluginHealthState(true, 0, 0, 0, 0, null);
+
+    private final boolean healthy;
+    private final long checkedAt;
+    private final long latency;
+    private final int consecutiveFailures;
+    private final int consecutiveSuccesses;
+    private final String lastError;
+
+    private PluginHealthState(boolean healthy, long checkedAt, long latency,
+                              int consecutiveFailures, int consecutiveSuccesses, String lastError) {
+        this.healthy = healthy;
+        this.checkedAt = checkedAt;
+        this.latency = latency;
+        this.consecutiveFailures = consecutiveFailures;
+        this.consecutiveSuccesses = consecutiveSuccesses;
+        this.lastError = lastError;
+    }
+
+    /**
+     * Apply a probe result with hysteresis: the plugin turns unhealthy only after
+     * failureThreshold failed probes in a row and recovers after successThreshold passed probes.
+     * @param passed Probe result
+     * @param error Failure reason, null if the probe passed
+     */
+    public PluginHealthState next(boolean passed, long checkedAt, long latency, String error,
+                                  int failureThreshold, int successThreshold) {
+        int failures = passed ? 0 : consecutiveFailures + 1;
+        int successes = passed ? consecutiveSuccesses + 1 : 0;
+
+        boolean nextHealthy = healthy;
+        if (healthy && failures >= failureThreshold) {
+            nextHealthy = false;
+        } else if (!healthy && successes >= successThreshold) {
+            nextHealthy = true;
+        }
+
+        return new PluginHealthState(nextHealthy, checkedAt, latency, failures, successes,
+                                     passed ? lastError : error);
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return Time of the last probe in epoch millis, 0 if never probed
+     */
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public int getConsecutiveSuccesses() {
+        return consecutiveSuccesses;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "PluginHealthState{" +
+                "healthy=" + healthy +
+                ", checkedAt=" + checkedAt +
+                ", latency=" + latency +
+                ", consecutiveFailures=" + consecutiveFailures +
+                ", consecutiveSuccesses=" + consecutiveSuccesses +
+                ", lastError='" + lastError + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.esb.middleware.plugin;
+
+import com.esb.plugin.EsbPlugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A registered plugin instance and the number of calls currently running on it.
+ * Once retired (replaced or unregistered) no new calls are admitted, and the instance
+ * reports drained when the last running call releases it.
+ */
+public final class PluginInstance {
+
+    private final String pluginId;
+    private final EsbPlugin plugin;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private volatile boolean retired;
+
+    PluginInstance(String pluginId, EsbPlugin plugin) {
+        this.pluginId = pluginId;
+        this.plugin = plugin;
+    }
+
+    /**
+     * Admit a call, which must be followed by release()
+     * @return false if the instance has been retired
+     */
+    boolean tryAcquire() {
+        if (retired) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        if (retired) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finish a call admitted by the registry
+     */
+    public void release() {
+        if (inFlight.decrementAndGet() == 0 && retired) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Stop admitting calls
+     */
+    void retire() {
+        retired = true;
+        if (inFlight.get() == 0) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * @return Future completing once the instance is retired and no calls are running on it
+     */
+    public CompletableFuture<Void> whenDrained() {
+        return drained;
+    }
+
+    /**
+     * Wait for running calls to finish
+     * @return true if drained, false if calls were still running when the timeout expired
+     */
+    public boolean awaitDrain(long timeoutMillis) throws InterruptedException {
+        try {
+            drained.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    public EsbPlugin getPlugin() {
+        return plugin;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+}
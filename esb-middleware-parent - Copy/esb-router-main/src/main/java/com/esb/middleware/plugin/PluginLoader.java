@@ -3,19 +3,34 @@ package com.esb.middleware.plugin;
 import com.esb.middleware.plugin.*;
 import com.esb.plugin.*;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 /**
- * Plugin loader for dynamically loading JAR files
+ * Plugin loader for dynamically loading JAR files.
+ * Each plugin gets an indexed PluginClassLoader whose parent is one shared library layer: the JARs in
+ * the shared lib directory on top of the application class loader. Shared packages resolve there once
+ * for all plugins instead of once per plugin.
  */
 @Component
 public class PluginLoader {
@@ -24,17 +39,80 @@ public class PluginLoader {
     
     private final ConcurrentHashMap<String, URLClassLoader> classLoaders = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, EsbPlugin> loadedPlugins = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Boolean> registeredGauges = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${esb.plugin.shared-lib.directory:plugins/lib}")
+    private String sharedLibDirectory;
+    
+    @Value("${esb.plugin.shared-packages:com.esb.plugin.,com.fasterxml.jackson.,org.apache.http.,org.apache.hc.,org.slf4j.}")
+    private String sharedPackagesProperty;
+    
+    private List<String> sharedPackages = Collections.emptyList();
+    
+    // Parent of every plugin class loader; a URLClassLoader over the shared lib JARs, or the application loader if there are none
+    private ClassLoader sharedLayer;
+    
+    // Class loader of every live instance, including old versions still draining after a swap
+    private final Map<EsbPlugin, URLClassLoader> instanceClassLoaders = Collections.synchronizedMap(new IdentityHashMap<>());
+    
+    /**
+     * Create the shared library layer
+     */
+    @PostConstruct
+    public void initializeSharedLayer() {
+        List<String> packages = new ArrayList<>();
+        for (String sharedPackage : sharedPackagesProperty.split(",")) {
+            String trimmed = sharedPackage.trim();
+            if (!trimmed.isEmpty()) {
+                packages.add(trimmed.endsWith(".") ? trimmed : trimmed + ".");
+            }
+        }
+        sharedPackages = Collections.unmodifiableList(packages);
+        
+        ClassLoader applicationLoader = this.getClass().getClassLoader();
+        File[] libJars = new File(sharedLibDirectory).listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
+        if (libJars == null || libJars.length == 0) {
+            sharedLayer = applicationLoader;
+            logger.info("Plugin shared layer: application class loader, shared packages {}", sharedPackages);
+            return;
+        }
+        
+        Arrays.sort(libJars);
+        List<URL> urls = new ArrayList<>();
+        for (File libJar : libJars) {
+            try {
+                urls.add(libJar.toURI().toURL());
+            } catch (Exception e) {
+                logger.warn("Skipping shared library JAR: {}", libJar, e);
+            }
+        }
+        sharedLayer = new URLClassLoader(urls.toArray(new URL[0]), applicationLoader);
+        logger.info("Plugin shared layer: {} JARs from {}, shared packages {}", urls.size(), sharedLibDirectory, sharedPackages);
+    }
     
     /**
      * Load plugin from JAR file
      */
     public EsbPlugin loadPlugin(String pluginId, File jarFile, String mainClassName) throws PluginException {
+        EsbPlugin plugin = loadPluginInstance(pluginId, jarFile, mainClassName);
+        activatePlugin(pluginId, plugin);
+        return plugin;
+    }
+    
+    /**
+     * Load a new plugin instance in its own class loader without replacing the current one,
+     * so a new version can be initialized while the old one keeps serving
+     */
+    public EsbPlugin loadPluginInstance(String pluginId, File jarFile, String mainClassName) throws PluginException {
+        URLClassLoader classLoader = null;
         try {
             logger.info("Loading plugin: {} from JAR: {}", pluginId, jarFile.getName());
             
-            // Create class loader for the plugin
-            URL[] urls = {jarFile.toURI().toURL()};
-            URLClassLoader classLoader = new URLClassLoader(urls, this.getClass().getClassLoader());
+            // Create class loader for the plugin, indexing the JAR once
+            classLoader = new PluginClassLoader(pluginId, jarFile, getSharedLayer(), sharedPackages);
             
             // Load the main plugin class
             Class<?> pluginClass = classLoader.loadClass(mainClassName);
@@ -47,21 +125,89 @@ public class PluginLoader {
             
             // Create plugin instance
             EsbPlugin plugin = (EsbPlugin) pluginClass.getDeclaredConstructor().newInstance();
-            
-            // Store references
-            classLoaders.put(pluginId, classLoader);
-            loadedPlugins.put(pluginId, plugin);
+            instanceClassLoaders.put(plugin, classLoader);
             
             logger.info("Successfully loaded plugin: {}", pluginId);
             return plugin;
             
         } catch (Exception e) {
             logger.error("Failed to load plugin: {}", pluginId, e);
+            closeQuietly(pluginId, classLoader);
             throw new PluginException(pluginId, "LOAD_FAILED", 
                 "Failed to load plugin: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Make a loaded instance the current one for its plugin ID
+     */
+    public void activatePlugin(String pluginId, EsbPlugin plugin) {
+        loadedPlugins.put(pluginId, plugin);
+        URLClassLoader classLoader = instanceClassLoaders.get(plugin);
+        if (classLoader != null) {
+            classLoaders.put(pluginId, classLoader);
+        }
+        registerGauges(pluginId);
+    }
+    
+    /**
+     * Get class loading statistics of the current instance of each plugin
+     */
+    public Map<String, Map<String, Object>> getClassLoaderStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        classLoaders.forEach((pluginId, classLoader) -> {
+            if (classLoader instanceof PluginClassLoader) {
+                stats.put(pluginId, ((PluginClassLoader) classLoader).getStats());
+            }
+        });
+        return stats;
+    }
+    
+    private ClassLoader getSharedLayer() {
+        return sharedLayer != null ? sharedLayer : this.getClass().getClassLoader();
+    }
+    
+    private void registerGauges(String pluginId) {
+        registeredGauges.computeIfAbsent(pluginId, id -> {
+            Gauge.builder("esb.plugin.classes.loaded", classLoaders, loaders -> {
+                    URLClassLoader classLoader = loaders.get(id);
+                    return classLoader instanceof PluginClassLoader ? ((PluginClassLoader) classLoader).getClassesLoaded() : 0;
+                })
+                .tag("plugin", id)
+                .register(meterRegistry);
+            Gauge.builder("esb.plugin.class.bytes", classLoaders, loaders -> {
+                    URLClassLoader classLoader = loaders.get(id);
+                    return classLoader instanceof PluginClassLoader ? ((PluginClassLoader) classLoader).getClassBytesLoaded() : 0;
+                })
+                .tag("plugin", id)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+            return Boolean.TRUE;
+        });
+    }
+    
+    /**
+     * Destroy one plugin instance and close its class loader, leaving a newer instance of the same plugin untouched
+     */
+    public void destroyPluginInstance(String pluginId, EsbPlugin plugin) throws PluginException {
+        URLClassLoader classLoader = instanceClassLoaders.remove(plugin);
+        loadedPlugins.remove(pluginId, plugin);
+        if (classLoader != null) {
+            classLoaders.remove(pluginId, classLoader);
+        }
+        
+        try {
+            plugin.destroy();
+            if (classLoader != null) {
+                classLoader.close();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to destroy plugin instance: {}", pluginId, e);
+            throw new PluginException(pluginId, "UNLOAD_FAILED", 
+                "Failed to unload plugin: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Unload plugin and cleanup resources
      */
@@ -72,19 +218,19 @@ public class PluginLoader {
             // Get plugin instance and cleanup
             EsbPlugin plugin = loadedPlugins.get(pluginId);
             if (plugin != null) {
-                plugin.destroy();
-                loadedPlugins.remove(pluginId);
+                destroyPluginInstance(pluginId, plugin);
             }
             
             // Close class loader
-            URLClassLoader classLoader = classLoaders.get(pluginId);
+            URLClassLoader classLoader = classLoaders.remove(pluginId);
             if (classLoader != null) {
                 classLoader.close();
-                classLoaders.remove(pluginId);
             }
             
             logger.info("Successfully unloaded plugin: {}", pluginId);
             
+        } catch (PluginException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to unload plugin: {}", pluginId, e);
             throw new PluginException(pluginId, "UNLOAD_FAILED", 
@@ -180,6 +326,17 @@ public class PluginLoader {
         }
     }
     
+    private void closeQuietly(String pluginId, URLClassLoader classLoader) {
+        if (classLoader == null) {
+            return;
+        }
+        try {
+            classLoader.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close class loader for plugin: {}", pluginId, e);
+        }
+    }
+    
     /**
      * Get total number of loaded plugins
      */
@@ -201,6 +358,10 @@ public class PluginLoader {
             }
         }*/
         
+        if (sharedLayer instanceof URLClassLoader && sharedLayer != this.getClass().getClassLoader()) {
+            closeQuietly("shared-layer", (URLClassLoader) sharedLayer);
+        }
+        
         logger.info("Plugin loader shutdown completed");
     }
 }
\ No newline at end of file
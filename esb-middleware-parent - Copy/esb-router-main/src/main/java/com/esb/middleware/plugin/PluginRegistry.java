@@ -11,9 +11,12 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Plugin registry for managing loaded plugins and their metadata
+ * Plugin registry for managing loaded plugins and their metadata.
+ * Changes are serialized and republish an immutable dispatch table, which request
+ * dispatch reads without locking.
  */
 @Component
 public class PluginRegistry {
@@ -21,64 +24,84 @@ public class PluginRegistry {
     private static final Logger logger = LoggerFactory.getLogger(PluginRegistry.class);
     
     private final ConcurrentHashMap<String, EsbPlugin> plugins = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PluginInstance> instances = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, PluginMetadata> pluginMetadata = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, List<String>> endpointToPluginMap = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Long> pluginLoadTimes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> registrationOrder = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PluginHealthState> healthStates = new ConcurrentHashMap<>();
+    private final AtomicLong registrationSequence = new AtomicLong();
+    
+    // Published dispatch snapshot, replaced as a whole on every change
+    private volatile DispatchTable dispatchTable = DispatchTable.EMPTY;
     
     /**
-     * Register a plugin in the registry
+     * Register a plugin in the registry, replacing any instance already registered under the ID.
+     * The replaced instance stops admitting calls as soon as the new dispatch table is published.
+     * @return Replaced instance to destroy once drained, or null if the ID was not registered
      */
-    public void registerPlugin(String pluginId, EsbPlugin plugin) {
+    public synchronized PluginInstance registerPlugin(String pluginId, EsbPlugin plugin) {
         logger.info("Registering plugin: {}", pluginId);
         
         plugins.put(pluginId, plugin);
+        PluginInstance replaced = instances.put(pluginId, new PluginInstance(pluginId, plugin));
         pluginLoadTimes.put(pluginId, System.currentTimeMillis());
+        registrationOrder.putIfAbsent(pluginId, registrationSequence.incrementAndGet());
+        healthStates.put(pluginId, PluginHealthState.UNKNOWN);
         
         // Get and store plugin metadata
         PluginMetadata metadata = plugin.getMetadata();
         if (metadata != null) {
             pluginMetadata.put(pluginId, metadata);
-            
-            // Update endpoint mappings
-            updateEndpointMappings(pluginId, metadata.getSupportedEndpoints());
+        } else {
+            pluginMetadata.remove(pluginId);
         }
         
-        logger.info("Successfully registered plugin: {} with {} endpoints", 
-                   pluginId, metadata != null ? metadata.getSupportedEndpoints().size() : 0);
+        rebuildDispatchTable();
+        retire(replaced);
+        
+        logger.info("Successfully registered plugin: {} with {} endpoints", pluginId, 
+                   metadata != null && metadata.getSupportedEndpoints() != null ? metadata.getSupportedEndpoints().size() : 0);
+        
+        // Re-registering the same object must not hand it back for destruction
+        return replaced != null && replaced.getPlugin() != plugin ? replaced : null;
     }
     
     /**
      * Unregister a plugin from the registry
+     * @return Removed instance to destroy once drained, or null if the ID was not registered
      */
-    public void unregisterPlugin(String pluginId) {
+    public synchronized PluginInstance unregisterPlugin(String pluginId) {
         logger.info("Unregistering plugin: {}", pluginId);
         
         // Remove from main registry
-        EsbPlugin plugin = plugins.remove(pluginId);
-        PluginMetadata metadata = pluginMetadata.remove(pluginId);
+        plugins.remove(pluginId);
+        PluginInstance removed = instances.remove(pluginId);
+        pluginMetadata.remove(pluginId);
         pluginLoadTimes.remove(pluginId);
+        registrationOrder.remove(pluginId);
+        healthStates.remove(pluginId);
         
-        // Remove endpoint mappings
-        if (metadata != null && metadata.getSupportedEndpoints() != null) {
-            for (String endpoint : metadata.getSupportedEndpoints()) {
-                List<String> pluginsForEndpoint = endpointToPluginMap.get(endpoint);
-                if (pluginsForEndpoint != null) {
-                    pluginsForEndpoint.remove(pluginId);
-                    if (pluginsForEndpoint.isEmpty()) {
-                        endpointToPluginMap.remove(endpoint);
-                    }
-                }
-            }
-        }
+        rebuildDispatchTable();
+        retire(removed);
         
         logger.info("Successfully unregistered plugin: {}", pluginId);
+        return removed;
+    }
+    
+    /**
+     * Admit a call on a plugin instance obtained from this registry
+     * @return Instance to release when the call finishes, or null if the plugin has been replaced or unregistered
+     */
+    public PluginInstance acquire(EsbPlugin plugin) {
+        PluginInstance instance = dispatchTable.getInstance(plugin);
+        return instance != null && instance.tryAcquire() ? instance : null;
     }
     
     /**
      * Get plugin by ID
      */
     public EsbPlugin getPlugin(String pluginId) {
-        return plugins.get(pluginId);
+        return dispatchTable.getPlugin(pluginId);
     }
     
     /**
@@ -92,39 +115,46 @@ public class PluginRegistry {
      * Find plugins that support a specific endpoint
      */
     public List<String> getPluginsForEndpoint(String endpoint) {
-        return endpointToPluginMap.getOrDefault(endpoint, new ArrayList<>());
+        return dispatchTable.getPluginIds(endpoint);
     }
     
     /**
-     * Get the best plugin for an endpoint (based on priority)
+     * Get the best plugin ID for an endpoint (based on priority)
      */
     public String getBestPluginForEndpoint(String endpoint) {
-        List<String> plugins = getPluginsForEndpoint(endpoint);
-        if (plugins.isEmpty()) {
-            return null;
-        }
-        
-        // Find plugin with highest priority
-        String bestPlugin = null;
-        int highestPriority = Integer.MIN_VALUE;
-        
-        for (String pluginId : plugins) {
-            PluginMetadata metadata = pluginMetadata.get(pluginId);
-            if (metadata != null && metadata.isEnabled() && metadata.getPriority() > highestPriority) {
-                highestPriority = metadata.getPriority();
-                bestPlugin = pluginId;
-            }
-        }
-        
-        return bestPlugin;
+        return dispatchTable.getBestPluginId(endpoint);
+    }
+    
+    /**
+     * Get the best plugin for an endpoint, resolved when the dispatch table was built
+     */
+    public EsbPlugin getPluginForEndpoint(String endpoint) {
+        return dispatchTable.getBestPlugin(endpoint);
     }
     
     /**
-     * Check if plugin is registered and healthy
+     * Check if plugin is registered and healthy, based on the last probe result
      */
     public boolean isPluginHealthy(String pluginId) {
-        EsbPlugin plugin = plugins.get(pluginId);
-        return plugin != null && plugin.isHealthy();
+        PluginHealthState state = pluginId != null ? healthStates.get(pluginId) : null;
+        return state != null && state.isHealthy();
+    }
+    
+    /**
+     * Get last known health of a plugin
+     * @return Health state, or null if the plugin is not registered
+     */
+    public PluginHealthState getHealthState(String pluginId) {
+        return healthStates.get(pluginId);
+    }
+    
+    /**
+     * Store a probe result, ignored if the probed instance has since been unregistered or replaced
+     */
+    public synchronized void updateHealthState(String pluginId, EsbPlugin probedPlugin, PluginHealthState state) {
+        if (plugins.get(pluginId) == probedPlugin) {
+            healthStates.put(pluginId, state);
+        }
     }
     
     /**
@@ -160,7 +190,7 @@ public class PluginRegistry {
      * Get all supported endpoints
      */
     public Set<String> getAllSupportedEndpoints() {
-        return endpointToPluginMap.keySet();
+        return dispatchTable.getPluginIdsByEndpoint().keySet();
     }
     
     /**
@@ -170,7 +200,7 @@ public class PluginRegistry {
         Map<String, Object> stats = new ConcurrentHashMap<>();
         stats.put("totalPlugins", plugins.size());
         stats.put("enabledPlugins", getEnabledPluginIds().size());
-        stats.put("supportedEndpoints", endpointToPluginMap.size());
+        stats.put("supportedEndpoints", dispatchTable.getPluginIdsByEndpoint().size());
         stats.put("healthyPlugins", getHealthyPluginCount());
         return stats;
     }
@@ -189,36 +219,29 @@ public class PluginRegistry {
     }
     
     /**
-     * Update endpoint mappings for a plugin
+     * Build and publish a new dispatch table, callers hold the registry lock
      */
-    private void updateEndpointMappings(String pluginId, List<String> endpoints) {
-        if (endpoints == null || endpoints.isEmpty()) {
-            return;
-        }
-        
-        for (String endpoint : endpoints) {
-            endpointToPluginMap.computeIfAbsent(endpoint, k -> new ArrayList<>()).add(pluginId);
+    private void rebuildDispatchTable() {
+        dispatchTable = DispatchTable.build(instances, pluginMetadata, registrationOrder);
+    }
+    
+    /**
+     * Stop admitting calls to an instance that is no longer in the published dispatch table
+     */
+    private void retire(PluginInstance instance) {
+        if (instance != null) {
+            instance.retire();
         }
     }
     
     /**
-     * Perform health check on all plugins
+     * Get health of all plugins from the last probe results
      */
     public Map<String, Boolean> performHealthCheck() {
         Map<String, Boolean> healthStatus = new ConcurrentHashMap<>();
         
         for (String pluginId : plugins.keySet()) {
-            try {
-                boolean healthy = isPluginHealthy(pluginId);
-                healthStatus.put(pluginId, healthy);
-                
-                if (!healthy) {
-                    logger.warn("Plugin {} failed health check", pluginId);
-                }
-            } catch (Exception e) {
-                logger.error("Error during health check for plugin: {}", pluginId, e);
-                healthStatus.put(pluginId, false);
-            }
+            healthStatus.put(pluginId, isPluginHealthy(pluginId));
         }
         
         return healthStatus;
@@ -238,6 +261,18 @@ public class PluginRegistry {
             info.put("healthy", isPluginHealthy(pluginId));
             info.put("loadTime", pluginLoadTimes.get(pluginId));
             
+            PluginInstance instance = instances.get(pluginId);
+            info.put("inFlight", instance != null ? instance.getInFlight() : 0);
+            
+            PluginHealthState healthState = healthStates.get(pluginId);
+            if (healthState != null && healthState.getCheckedAt() > 0) {
+                info.put("healthCheckedAt", healthState.getCheckedAt());
+                info.put("healthCheckLatency", healthState.getLatency());
+                if (healthState.getLastError() != null) {
+                    info.put("lastHealthError", healthState.getLastError());
+                }
+            }
+            
             if (metadata != null) {
                 info.put("name", metadata.getName());
                 info.put("version", metadata.getVersion());
@@ -257,11 +292,15 @@ public class PluginRegistry {
     /**
      * Clear all plugins from registry
      */
-    public void clear() {
+    public synchronized void clear() {
         logger.info("Clearing plugin registry");
         plugins.clear();
         pluginMetadata.clear();
-        endpointToPluginMap.clear();
         pluginLoadTimes.clear();
+        registrationOrder.clear();
+        healthStates.clear();
+        dispatchTable = DispatchTable.EMPTY;
+        instances.values().forEach(PluginInstance::retire);
+        instances.clear();
     }
 }
\ No newline at end of file
@@ -6,16 +6,28 @@ import com.esb.middleware.model.EsbRequest;
 import com.esb.middleware.model.EsbResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Service for managing audit logging of ESB transactions
@@ -25,45 +37,54 @@ public class AuditService {
     
     private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
     
+    // 20 columns per row keeps a chunk under the SQL Server limit of 2100 parameters
+    private static final int BATCH_INSERT_CHUNK_SIZE = 100;
+    
+    // A spilled response whose request row is still missing after this many flushes is given up
+    private static final int MAX_SPILL_UPDATE_ATTEMPTS = 5;
+    
     @Autowired
     private AuditLogMapper auditLogMapper;
     
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    @Qualifier("auditExecutor")
+    private Executor auditExecutor;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Writes the audit executor rejected, kept here and written in chunks by flushSpill instead of dropped
+    private final Object spillLock = new Object();
+    private AuditBatch spill = new AuditBatch();
+    private AuditBatch flushing;
+    
+    // Flushes each spilled response has been retried for, only touched by flushSpill
+    private final Map<String, Integer> spillUpdateAttempts = new HashMap<>();
+    
+    private Counter spilledWrites;
+    private Counter lostUpdates;
+    
+    @PostConstruct
+    public void registerMetrics() {
+        spilledWrites = meterRegistry.counter("esb.audit.spilled");
+        lostUpdates = meterRegistry.counter("esb.audit.lost");
+    }
+    
     /**
      * Log request initiation
      */
-    @Async
     public void logRequest(String requestId, EsbRequest request, String pluginId, String sourceIp) {
+        if (!submit(() -> insertRequest(requestId, request, pluginId, sourceIp))) {
+            spill(batch -> batch.logRequest(requestId, request, pluginId, sourceIp));
+        }
+    }
+    
+    private void insertRequest(String requestId, EsbRequest request, String pluginId, String sourceIp) {
         try {
-            AuditLog auditLog = new AuditLog();
-            auditLog.setRequestId(requestId);
-            auditLog.setCorrelationId(request.getCorrelationId());
-            auditLog.setBranchCode(request.getBranchCode());
-            auditLog.setEndpoint(request.getEndpoint());
-            auditLog.setMethod(request.getMethod());
-            auditLog.setPluginId(pluginId);
-            auditLog.setSourceSystem(request.getSourceSystem());
-            auditLog.setSourceIp(sourceIp);
-            auditLog.setRequestTime(LocalDateTime.now());
-            auditLog.setStatus("PROCESSING");
-            
-            // Serialize request payload
-            if (request.getPayload() != null) {
-                auditLog.setRequestPayload(serializeObject(request.getPayload()));
-            }
-            
-            // Serialize headers and parameters
-            if (request.getHeaders() != null && !request.getHeaders().isEmpty()) {
-                auditLog.setHeaders(serializeObject(request.getHeaders()));
-            }
-            
-            if (request.getParameters() != null && !request.getParameters().isEmpty()) {
-                auditLog.setParameters(serializeObject(request.getParameters()));
-            }
-            
-            auditLogMapper.insert(auditLog);
+            auditLogMapper.insert(buildRequestLog(requestId, request, pluginId, sourceIp));
             logger.debug("Logged request initiation for requestId: {}", requestId);
             
         } catch (Exception e) {
@@ -72,76 +93,271 @@ public class AuditService {
     }
     
     /**
-     * Log response completion
+     * Start collecting audit rows for a batch of requests
      */
-    @Async
-    public void logResponse(String requestId, EsbResponse response, long processingTime) {
+    public AuditBatch newBatch() {
+        return new AuditBatch();
+    }
+    
+    /**
+     * Write all rows collected for a batch with multi-row inserts
+     */
+    public void logBatch(AuditBatch batch) {
+        if (!submit(() -> writeBatch(batch))) {
+            spill(spilled -> spilled.addAll(batch));
+        }
+    }
+    
+    /**
+     * Insert the rows of a batch in chunks, then apply the responses it holds for rows written earlier.
+     * Returns the responses whose row was not found.
+     */
+    private List<AuditLog> writeBatch(AuditBatch batch) {
+        List<AuditLog> auditLogs = batch.getAuditLogs();
         try {
-            LocalDateTime responseTime = LocalDateTime.now();
-            String responsePayload = null;
-            
-            // Serialize response data
-            if (response.getData() != null) {
-                responsePayload = serializeObject(response.getData());
+            for (int from = 0; from < auditLogs.size(); from += BATCH_INSERT_CHUNK_SIZE) {
+                int to = Math.min(from + BATCH_INSERT_CHUNK_SIZE, auditLogs.size());
+                auditLogMapper.insertBatch(auditLogs.subList(from, to));
             }
-            
-            auditLogMapper.updateResponse(
-                requestId,
-                responsePayload,
-                response.getStatus(),
-                response.getStatusCode(),
-                response.getErrorCode(),
-                response.getErrorMessage(),
-                processingTime,
-                responseTime
-            );
-            
-            logger.debug("Logged response completion for requestId: {}", requestId);
+            logger.debug("Logged audit batch of {} requests", auditLogs.size());
             
         } catch (Exception e) {
-            logger.error("Failed to log response for requestId: {}", requestId, e);
+            logger.error("Failed to log audit batch of {} requests", auditLogs.size(), e);
+        }
+        
+        List<AuditLog> unmatched = new ArrayList<>();
+        for (AuditLog update : batch.getResponseUpdates()) {
+            try {
+                if (applyResponse(update) == 0) {
+                    unmatched.add(update);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to log response for requestId: {}", update.getRequestId(), e);
+            }
+        }
+        return unmatched;
+    }
+    
+    /**
+     * Build audit row for request initiation
+     */
+    private AuditLog buildRequestLog(String requestId, EsbRequest request, String pluginId, String sourceIp) {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setRequestId(requestId);
+        auditLog.setCorrelationId(request.getCorrelationId());
+        auditLog.setBranchCode(request.getBranchCode());
+        auditLog.setEndpoint(request.getEndpoint());
+        auditLog.setMethod(request.getMethod());
+        auditLog.setPluginId(pluginId);
+        auditLog.setSourceSystem(request.getSourceSystem());
+        auditLog.setSourceIp(sourceIp);
+        auditLog.setRequestTime(LocalDateTime.now());
+        auditLog.setStatus("PROCESSING");
+        
+        // Store the original request bytes as-is, only serialize when there are none
+        if (request.hasRawBody()) {
+            auditLog.setRequestPayload(new String(request.getRawBody(), StandardCharsets.UTF_8));
+        } else if (request.getPayload() != null) {
+            auditLog.setRequestPayload(serializeObject(request.getPayload()));
+        }
+        
+        // Serialize headers and parameters
+        if (request.getHeaders() != null && !request.getHeaders().isEmpty()) {
+            auditLog.setHeaders(serializeObject(request.getHeaders()));
+        }
+        
+        if (request.getParameters() != null && !request.getParameters().isEmpty()) {
+            auditLog.setParameters(serializeObject(request.getParameters()));
+        }
+        
+        return auditLog;
+    }
+    
+    /**
+     * Log response completion
+     */
+    public void logResponse(String requestId, EsbResponse response, long processingTime) {
+        if (spillIfPending(requestId, batch -> batch.logResponse(requestId, response, processingTime))) {
+            return;
+        }
+        if (!submit(() -> updateResponse(buildResponseLog(requestId, response, processingTime)))) {
+            spill(batch -> batch.logResponse(requestId, response, processingTime));
         }
     }
     
     /**
      * Log error occurred during processing
      */
-    @Async
     public void logError(String requestId, String errorCode, String errorMessage, Exception exception) {
+        if (spillIfPending(requestId, batch -> batch.logError(requestId, errorCode, errorMessage, exception))) {
+            return;
+        }
+        if (!submit(() -> updateResponse(buildErrorLog(requestId, errorCode, errorMessage, exception)))) {
+            spill(batch -> batch.logError(requestId, errorCode, errorMessage, exception));
+        }
+    }
+    
+    private void updateResponse(AuditLog update) {
         try {
-            String additionalInfo = null;
-            if (exception != null) {
-                additionalInfo = "Exception: " + exception.getClass().getSimpleName() + 
-                               ", Message: " + exception.getMessage();
-            }
-            
-            auditLogMapper.updateResponse(
-                requestId,
-                null,
-                "ERROR",
-                "500",
-                errorCode,
-                errorMessage,
-                0,
-                LocalDateTime.now()
-            );
+            applyResponse(update);
+            logger.debug("Logged response completion for requestId: {}", update.getRequestId());
             
-            // Update additional info if exception details available
-            if (additionalInfo != null) {
-                AuditLog auditLog = auditLogMapper.findByRequestId(requestId);
-                if (auditLog != null) {
-                    auditLog.setAdditionalInfo(additionalInfo);
-                    auditLogMapper.update(auditLog);
+        } catch (Exception e) {
+            logger.error("Failed to log response for requestId: {}", update.getRequestId(), e);
+        }
+    }
+    
+    /**
+     * Write the response fields of an update to its request row, returning the number of rows changed
+     */
+    private int applyResponse(AuditLog update) {
+        int updated = auditLogMapper.updateResponse(
+            update.getRequestId(),
+            update.getResponsePayload(),
+            update.getStatus(),
+            update.getStatusCode(),
+            update.getErrorCode(),
+            update.getErrorMessage(),
+            update.getProcessingTime(),
+            update.getResponseTime()
+        );
+        
+        // Update additional info if exception details available
+        if (updated > 0 && update.getAdditionalInfo() != null) {
+            AuditLog auditLog = auditLogMapper.findByRequestId(update.getRequestId());
+            if (auditLog != null) {
+                auditLog.setAdditionalInfo(update.getAdditionalInfo());
+                auditLogMapper.update(auditLog);
+            }
+        }
+        return updated;
+    }
+    
+    /**
+     * Build the response fields recorded when a request completes
+     */
+    private AuditLog buildResponseLog(String requestId, EsbResponse response, long processingTime) {
+        AuditLog update = new AuditLog();
+        update.setRequestId(requestId);
+        if (response.getData() != null) {
+            update.setResponsePayload(serializeObject(response.getData()));
+        }
+        update.setStatus(response.getStatus());
+        update.setStatusCode(response.getStatusCode());
+        update.setErrorCode(response.getErrorCode());
+        update.setErrorMessage(response.getErrorMessage());
+        update.setProcessingTime(processingTime);
+        update.setResponseTime(LocalDateTime.now());
+        return update;
+    }
+    
+    /**
+     * Build the response fields recorded when a request fails
+     */
+    private AuditLog buildErrorLog(String requestId, String errorCode, String errorMessage, Exception exception) {
+        AuditLog update = new AuditLog();
+        update.setRequestId(requestId);
+        update.setStatus("ERROR");
+        update.setStatusCode("500");
+        update.setErrorCode(errorCode);
+        update.setErrorMessage(errorMessage);
+        update.setResponseTime(LocalDateTime.now());
+        if (exception != null) {
+            update.setAdditionalInfo("Exception: " + exception.getClass().getSimpleName() + 
+                                   ", Message: " + exception.getMessage());
+        }
+        return update;
+    }
+    
+    /**
+     * Hand an audit write to the audit executor, returning false when its queue is full
+     */
+    private boolean submit(Runnable write) {
+        try {
+            auditExecutor.execute(write);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Record a write the audit executor rejected in the spill batch, written by the next flushSpill
+     */
+    private void spill(Consumer<AuditBatch> write) {
+        synchronized (spillLock) {
+            write.accept(spill);
+        }
+        spilledWrites.increment();
+    }
+    
+    /**
+     * Route a response to the spill batch when its request row is waiting there or being flushed,
+     * so the update is never written before the row exists
+     */
+    private boolean spillIfPending(String requestId, Consumer<AuditBatch> write) {
+        synchronized (spillLock) {
+            if (!spill.contains(requestId) && (flushing == null || !flushing.contains(requestId))) {
+                return false;
+            }
+            write.accept(spill);
+            return true;
+        }
+    }
+    
+    /**
+     * Write spilled audit rows with the same chunked inserts as request batches.
+     * Responses whose request row is still queued on the audit executor are retried on later flushes.
+     */
+    @Scheduled(fixedDelayString = "${esb.audit.spill.flush-interval:1000}")
+    public void flushSpill() {
+        AuditBatch batch;
+        synchronized (spillLock) {
+            if (spill.isEmpty()) {
+                return;
+            }
+            batch = spill;
+            flushing = batch;
+            spill = new AuditBatch();
+        }
+        
+        try {
+            List<AuditLog> unmatched = writeBatch(batch);
+            List<AuditLog> retries = new ArrayList<>();
+            for (AuditLog update : unmatched) {
+                int attempts = spillUpdateAttempts.merge(update.getRequestId(), 1, Integer::sum);
+                if (attempts < MAX_SPILL_UPDATE_ATTEMPTS) {
+                    retries.add(update);
+                } else {
+                    spillUpdateAttempts.remove(update.getRequestId());
+                    lostUpdates.increment();
+                    logger.error("No audit row for requestId: {} after {} flushes, response not logged",
+                                 update.getRequestId(), attempts);
+                }
+            }
+            for (AuditLog update : batch.getResponseUpdates()) {
+                if (!unmatched.contains(update)) {
+                    spillUpdateAttempts.remove(update.getRequestId());
+                }
+            }
+            if (!retries.isEmpty()) {
+                synchronized (spillLock) {
+                    retries.forEach(spill::retryResponse);
                 }
             }
             
-            logger.debug("Logged error for requestId: {}", requestId);
-            
-        } catch (Exception e) {
-            logger.error("Failed to log error for requestId: {}", requestId, e);
+        } finally {
+            synchronized (spillLock) {
+                flushing = null;
+            }
         }
     }
     
+    @PreDestroy
+    public void shutdown() {
+        flushSpill();
+    }
+    
     /**
      * Get audit log by request ID
      */
@@ -294,6 +510,85 @@ public class AuditService {
         }
     }
     
+    /**
+     * Audit rows of a batch, kept in memory until the whole batch is written by logBatch.
+     * Rows keep the order their requests started in, so the time-ordered request IDs are inserted in sequence.
+     * Responses for requests whose row is not in the batch are kept and applied after its rows are inserted.
+     */
+    public class AuditBatch {
+        private final Map<String, AuditLog> auditLogs = new LinkedHashMap<>();
+        private final Map<String, AuditLog> responseUpdates = new LinkedHashMap<>();
+        
+        public void logRequest(String requestId, EsbRequest request, String pluginId, String sourceIp) {
+            AuditLog auditLog = buildRequestLog(requestId, request, pluginId, sourceIp);
+            synchronized (this) {
+                auditLogs.put(requestId, auditLog);
+            }
+        }
+        
+        public void logResponse(String requestId, EsbResponse response, long processingTime) {
+            merge(buildResponseLog(requestId, response, processingTime));
+        }
+        
+        public void logError(String requestId, String errorCode, String errorMessage, Exception exception) {
+            merge(buildErrorLog(requestId, errorCode, errorMessage, exception));
+        }
+        
+        private synchronized void merge(AuditLog update) {
+            AuditLog auditLog = auditLogs.get(update.getRequestId());
+            if (auditLog == null) {
+                responseUpdates.put(update.getRequestId(), update);
+                return;
+            }
+            auditLog.setResponsePayload(update.getResponsePayload());
+            auditLog.setStatus(update.getStatus());
+            auditLog.setStatusCode(update.getStatusCode());
+            auditLog.setErrorCode(update.getErrorCode());
+            auditLog.setErrorMessage(update.getErrorMessage());
+            auditLog.setProcessingTime(update.getProcessingTime());
+            auditLog.setResponseTime(update.getResponseTime());
+            if (update.getAdditionalInfo() != null) {
+                auditLog.setAdditionalInfo(update.getAdditionalInfo());
+            }
+        }
+        
+        synchronized void retryResponse(AuditLog update) {
+            // A newer response recorded meanwhile takes precedence
+            if (!auditLogs.containsKey(update.getRequestId())) {
+                responseUpdates.putIfAbsent(update.getRequestId(), update);
+            }
+        }
+        
+        synchronized void addAll(AuditBatch batch) {
+            for (AuditLog auditLog : batch.getAuditLogs()) {
+                auditLogs.put(auditLog.getRequestId(), auditLog);
+            }
+            for (AuditLog update : batch.getResponseUpdates()) {
+                merge(update);
+            }
+        }
+        
+        synchronized boolean contains(String requestId) {
+            return auditLogs.containsKey(requestId);
+        }
+        
+        synchronized boolean isEmpty() {
+            return auditLogs.isEmpty() && responseUpdates.isEmpty();
+        }
+        
+        public synchronized int size() {
+            return auditLogs.size();
+        }
+        
+        synchronized List<AuditLog> getAuditLogs() {
+            return new ArrayList<>(auditLogs.values());
+        }
+        
+        synchronized List<AuditLog> getResponseUpdates() {
+            return new ArrayList<>(responseUpdates.values());
+        }
+    }
+    
     /**
      * Inner class for audit search criteria
      */
@@ -1,18 +1,28 @@
 package com.esb.middleware.service;
 
+import com.esb.middleware.config.CacheConfig;
 import com.esb.middleware.mapper.BranchServiceConfigMapper;
+import com.esb.middleware.mapper.ConfigTombstoneMapper;
 import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.BulkImportResult;
+import com.esb.middleware.model.ConfigTombstone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
@@ -23,33 +33,73 @@ public class BranchServiceConfigService {
     @Autowired
     private BranchServiceConfigMapper branchServiceConfigMapper;
     
-    // In-memory cache for fast service lookups
-    private final Map<String, BranchServiceConfig> serviceCache = new ConcurrentHashMap<>();
+    @Autowired
+    private ConfigTombstoneMapper configTombstoneMapper;
+    
+    @Autowired
+    private ConfigBulkImporter configBulkImporter;
+    
+    @Autowired
+    private ConfigChangeTransport configChangeTransport;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    // Compiled enabled services, replaced on refresh and on every applied change
+    private volatile RoutingTable<BranchServiceConfig> routingTable = compile(Collections.emptyList());
+    
+    @Value("${esb.config.sync.overlap:5000}")
+    private long syncOverlap;
+    
+    @Value("${esb.config.sync.full-reconcile-every:20}")
+    private int fullReconcileEvery;
+    
+    // Serializes full refreshes and delta syncs, guards the watermark
+    private final Object syncLock = new Object();
+    
+    // Database time of the last full refresh or delta sync
+    private LocalDateTime syncWatermark;
+    
+    // Delta syncs since the last full reconcile, guarded by syncLock
+    private int syncsSinceReconcile;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    // Database fallback for table misses, remembers unknown services
+    private ConfigMissLoader<BranchServiceConfig> missLoader;
     
     @PostConstruct
     public void initializeCache() {
         logger.info("Initializing branch service configuration cache");
+        missLoader = new ConfigMissLoader<>(cacheManager.getCache(CacheConfig.SERVICE_CONFIG_MISSES));
         refreshCache();
-        logger.info("Branch service configuration cache initialized with {} services", serviceCache.size());
+        logger.info("Branch service configuration cache initialized with {} services", routingTable.size());
     }
     
     /**
      * Get service configuration for branch and service ID
      */
-    @Cacheable(value = "branchServiceConfig", key = "#branchCode + '_' + #serviceId")
     public BranchServiceConfig getServiceConfig(String branchCode, String serviceId) {
-        String cacheKey = branchCode + "_" + serviceId;
-        BranchServiceConfig config = serviceCache.get(cacheKey);
-        
-        if (config == null) {
-            // Fetch from database if not in cache
-            config = branchServiceConfigMapper.findByBranchAndServiceId(branchCode, serviceId);
-            if (config != null && config.isEnabled()) {
-                serviceCache.put(cacheKey, config);
-            }
+        BranchServiceConfig config = routingTable.get(branchCode, serviceId);
+        if (config != null) {
+            return config;
         }
         
-        return config != null && config.isEnabled() ? config : null;
+        // Unknown services are answered from the negative cache, concurrent misses share one query
+        return missLoader.load(branchCode, serviceId, this::loadEnabledService);
+    }
+    
+    /**
+     * Fetch an enabled service from the database and publish it to the table
+     */
+    private BranchServiceConfig loadEnabledService(String branchCode, String serviceId) {
+        BranchServiceConfig config = branchServiceConfigMapper.findByBranchAndServiceId(branchCode, serviceId);
+        if (config != null && config.isEnabled()) {
+            addToRoutingTable(config);
+            return config;
+        }
+        return null;
     }
     
     /**
@@ -69,7 +119,6 @@ public class BranchServiceConfigService {
     /**
      * Create new service configuration
      */
-    @CacheEvict(value = "branchServiceConfig", allEntries = true)
     public BranchServiceConfig createService(BranchServiceConfig serviceConfig) {
         logger.info("Creating new service config: branch={}, serviceId={}, pluginId={}", 
                    serviceConfig.getBranchCode(), serviceConfig.getServiceId(), serviceConfig.getPluginId());
@@ -79,7 +128,7 @@ public class BranchServiceConfigService {
         
         int result = branchServiceConfigMapper.insert(serviceConfig);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.singletonList(serviceConfig), Collections.emptyList());
             logger.info("Successfully created service config with ID: {}", serviceConfig.getId());
             return serviceConfig;
         } else {
@@ -90,7 +139,6 @@ public class BranchServiceConfigService {
     /**
      * Update existing service configuration
      */
-    @CacheEvict(value = "branchServiceConfig", allEntries = true)
     public BranchServiceConfig updateService(BranchServiceConfig serviceConfig) {
         logger.info("Updating service config: ID={}, branch={}, serviceId={}", 
                    serviceConfig.getId(), serviceConfig.getBranchCode(), serviceConfig.getServiceId());
@@ -99,7 +147,7 @@ public class BranchServiceConfigService {
         
         int result = branchServiceConfigMapper.update(serviceConfig);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.singletonList(serviceConfig), Collections.emptyList());
             logger.info("Successfully updated service config with ID: {}", serviceConfig.getId());
             return serviceConfig;
         } else {
@@ -110,13 +158,12 @@ public class BranchServiceConfigService {
     /**
      * Delete service configuration
      */
-    @CacheEvict(value = "branchServiceConfig", allEntries = true)
     public boolean deleteService(Long serviceId) {
         logger.info("Deleting service config with ID: {}", serviceId);
         
         int result = branchServiceConfigMapper.deleteById(serviceId);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.emptyList(), Collections.singletonList(serviceId));
             logger.info("Successfully deleted service config with ID: {}", serviceId);
             return true;
         } else {
@@ -128,13 +175,18 @@ public class BranchServiceConfigService {
     /**
      * Enable/disable service configuration
      */
-    @CacheEvict(value = "branchServiceConfig", allEntries = true)
     public boolean toggleService(Long serviceId, boolean enabled) {
         logger.info("Toggling service config: ID={}, enabled={}", serviceId, enabled);
         
         int result = branchServiceConfigMapper.updateStatus(serviceId, enabled);
         if (result > 0) {
-            refreshCache();
+            if (enabled) {
+                BranchServiceConfig service = branchServiceConfigMapper.findById(serviceId);
+                applyLocalChanges(service != null ? Collections.singletonList(service) : Collections.emptyList(), 
+                            Collections.emptyList());
+            } else {
+                applyLocalChanges(Collections.emptyList(), Collections.singletonList(serviceId));
+            }
             logger.info("Successfully toggled service config: ID={}, enabled={}", serviceId, enabled);
             return true;
         } else {
@@ -143,6 +195,31 @@ public class BranchServiceConfigService {
         }
     }
     
+    /**
+     * Bulk import services in JDBC batches, upsert updates existing branch/service rows.
+     * The routing table is rebuilt once at the end.
+     */
+    public BulkImportResult importServices(List<BranchServiceConfig> services, boolean upsert) {
+        logger.info("Bulk importing {} service configs, upsert={}", services.size(), upsert);
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (BranchServiceConfig service : services) {
+            if (service.getCreatedDate() == null) {
+                service.setCreatedDate(now);
+            }
+            service.setModifiedDate(now);
+        }
+        
+        BulkImportResult result = configBulkImporter.importServices(services, upsert);
+        if (result.getSuccessCount() > 0) {
+            refreshCache();
+            configChangeTransport.publish(ConfigTombstone.TYPE_SERVICE);
+        }
+        
+        logger.info("Successfully imported {}/{} service configs", result.getSuccessCount(), services.size());
+        return result;
+    }
+    
     /**
      * Get service configuration by ID
      */
@@ -160,19 +237,143 @@ public class BranchServiceConfigService {
     /**
      * Refresh the entire service configuration cache
      */
-    @CacheEvict(value = "branchServiceConfig", allEntries = true)
     public void refreshCache() {
         logger.info("Refreshing branch service configuration cache");
         
-        serviceCache.clear();
-        List<BranchServiceConfig> allServices = branchServiceConfigMapper.findAllEnabled();
+        synchronized (syncLock) {
+            // Take the watermark first so rows changed during the load are picked up by the next delta
+            LocalDateTime watermark = configTombstoneMapper.selectCurrentTime();
+            
+            // Compile the new table completely before publishing it, readers keep using the old one meanwhile
+            RoutingTable<BranchServiceConfig> table = compile(branchServiceConfigMapper.findAllEnabled());
+            
+            synchronized (this) {
+                routingTable = table;
+            }
+            syncWatermark = watermark;
+            // Services may have been created or enabled, forget remembered misses
+            missLoader.clear();
+            responseCache.invalidateAll();
+            
+            logger.info("Branch service configuration cache refreshed with {} services", table.size());
+        }
+    }
+    
+    /**
+     * Apply services changed or deleted since the last sync, including changes made by other nodes
+     * @return Number of changes applied to the routing table
+     */
+    @Scheduled(fixedDelayString = "${esb.config.sync.interval:30000}", 
+               initialDelayString = "${esb.config.sync.interval:30000}")
+    public int syncChanges() {
+        synchronized (syncLock) {
+            LocalDateTime watermark = configTombstoneMapper.selectCurrentTime();
+            
+            if (fullReconcileEvery > 0 && ++syncsSinceReconcile >= fullReconcileEvery) {
+                syncsSinceReconcile = 0;
+                int applied = reconcile();
+                syncWatermark = watermark;
+                if (applied > 0) {
+                    logger.warn("Branch service configuration reconcile applied {} changes missed by delta sync", applied);
+                }
+                return applied;
+            }
+            
+            // modified_date is set by the database clock, the overlap covers transactions that committed late
+            LocalDateTime since = syncWatermark.minusNanos(syncOverlap * 1_000_000L);
+            List<BranchServiceConfig> changed = branchServiceConfigMapper.findModifiedSince(since);
+            List<Long> removedIds = new ArrayList<>();
+            for (ConfigTombstone tombstone : configTombstoneMapper.findDeletedSince(ConfigTombstone.TYPE_SERVICE, since)) {
+                removedIds.add(tombstone.getConfigId());
+            }
+            
+            int applied = applyChanges(changed, removedIds);
+            syncWatermark = watermark;
+            
+            if (applied > 0) {
+                logger.info("Branch service configuration delta sync applied {} changes, {} services cached", 
+                           applied, routingTable.size());
+            }
+            return applied;
+        }
+    }
+    
+    /**
+     * Compare the whole table with the enabled rows in the database.
+     * Catches changes whose transaction committed after the delta sync overlap had already passed them.
+     * @return Number of changes applied
+     */
+    private int reconcile() {
+        // IDs are taken before the load, so rows published on a table miss meanwhile are kept
+        Set<Long> removedIds = new HashSet<>(routingTable.ids());
+        List<BranchServiceConfig> enabled = branchServiceConfigMapper.findAllEnabled();
+        for (BranchServiceConfig row : enabled) {
+            removedIds.remove(row.getId());
+        }
+        return applyChanges(enabled, new ArrayList<>(removedIds));
+    }
+    
+    /**
+     * Publish changed and deleted services to the routing table.
+     * Disabled rows are removed and rows already in the table unchanged are skipped.
+     * @return Number of changes applied
+     */
+    private int applyChanges(List<BranchServiceConfig> changed, List<Long> removedIds) {
+        List<BranchServiceConfig> upserts = new ArrayList<>();
+        List<Long> removals = new ArrayList<>();
+        
+        synchronized (this) {
+            RoutingTable<BranchServiceConfig> table = routingTable;
+            for (BranchServiceConfig service : changed) {
+                BranchServiceConfig current = table.getById(service.getId());
+                if (service.isEnabled()) {
+                    if (current == null || !Objects.equals(current.getModifiedDate(), service.getModifiedDate())) {
+                        upserts.add(service);
+                    }
+                } else if (current != null) {
+                    removals.add(service.getId());
+                }
+            }
+            for (Long id : removedIds) {
+                if (table.getById(id) != null) {
+                    removals.add(id);
+                }
+            }
+            routingTable = table.withChanges(upserts, removals);
+        }
         
-        for (BranchServiceConfig service : allServices) {
-            String cacheKey = service.getBranchCode() + "_" + service.getServiceId();
-            serviceCache.put(cacheKey, service);
+        if (!upserts.isEmpty()) {
+            // Services may have been created or enabled, forget remembered misses
+            missLoader.clear();
         }
         
-        logger.info("Branch service configuration cache refreshed with {} services", serviceCache.size());
+        // Responses cached under changed or removed services are no longer valid
+        List<Long> changedIds = new ArrayList<>(removals);
+        for (BranchServiceConfig service : upserts) {
+            changedIds.add(service.getId());
+        }
+        responseCache.invalidateServices(changedIds);
+        return upserts.size() + removals.size();
+    }
+    
+    /**
+     * Apply changes made through this node and announce them to the other nodes
+     */
+    private void applyLocalChanges(List<BranchServiceConfig> changed, List<Long> removedIds) {
+        applyChanges(changed, removedIds);
+        configChangeTransport.publish(ConfigTombstone.TYPE_SERVICE);
+    }
+    
+    /**
+     * Publish a service loaded on a table miss
+     */
+    private synchronized void addToRoutingTable(BranchServiceConfig config) {
+        routingTable = routingTable.with(config);
+    }
+    
+    private static RoutingTable<BranchServiceConfig> compile(List<BranchServiceConfig> services) {
+        return RoutingTable.of(services, BranchServiceConfig::getId, 
+            BranchServiceConfig::getBranchCode, BranchServiceConfig::getServiceId);
     }
     
     /**
@@ -182,7 +383,8 @@ public class BranchServiceConfigService {
         Map<String, Object> stats = new ConcurrentHashMap<>();
         stats.put("totalServices", branchServiceConfigMapper.countTotal());
         stats.put("enabledServices", branchServiceConfigMapper.countEnabled());
-        stats.put("cachedServices", serviceCache.size());
+        stats.put("cachedServices", routingTable.size());
+        stats.put("missDatabaseLoads", missLoader.getDatabaseLoads());
         return stats;
     }
 }
\ No newline at end of file
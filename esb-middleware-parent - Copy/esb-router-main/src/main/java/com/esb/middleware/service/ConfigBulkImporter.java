@@ -0,0 +1,166 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.mapper.BranchServiceConfigMapper;
+import com.esb.middleware.mapper.RouteConfigMapper;
+import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.BulkImportResult;
+import com.esb.middleware.model.RouteConfig;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Bulk writer for route_config and branch_service_config.
+ * Rows are sent as JDBC batches through a BATCH executor and committed one chunk per transaction.
+ * A chunk that fails is rolled back and retried row by row, so each bad row is reported
+ * and the good rows of the chunk still land.
+ */
+@Component
+public class ConfigBulkImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigBulkImporter.class);
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private SqlSessionTemplate sqlSessionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${esb.config.import.chunk-size:1000}")
+    private int chunkSize;
+
+    private SqlSessionTemplate batchSqlSessionTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void initialize() {
+        // Not a bean, a second SqlSessionTemplate would make mapper injection ambiguous
+        batchSqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Insert or upsert route configurations, keyed by branch code and endpoint
+     */
+    public BulkImportResult importRoutes(List<RouteConfig> routes, boolean upsert) {
+        BiConsumer<RouteConfigMapper, RouteConfig> write = upsert 
+            ? RouteConfigMapper::upsert : RouteConfigMapper::insertWithoutKey;
+        return importRows("route", routes, RouteConfigMapper.class, write,
+            route -> route.getBranchCode() + "/" + route.getEndpoint(),
+            ConfigBulkImporter::validateRoute);
+    }
+
+    /**
+     * Insert or upsert service configurations, keyed by branch code and service ID
+     */
+    public BulkImportResult importServices(List<BranchServiceConfig> services, boolean upsert) {
+        BiConsumer<BranchServiceConfigMapper, BranchServiceConfig> write = upsert 
+            ? BranchServiceConfigMapper::upsert : BranchServiceConfigMapper::insertWithoutKey;
+        return importRows("service", services, BranchServiceConfigMapper.class, write,
+            service -> service.getBranchCode() + "/" + service.getServiceId(),
+            ConfigBulkImporter::validateService);
+    }
+
+    private <M, T> BulkImportResult importRows(String kind, List<T> rows, Class<M> mapperType,
+                                               BiConsumer<M, T> write, Function<T, String> keyOf,
+                                               Function<T, String> validator) {
+        long startTime = System.currentTimeMillis();
+        BulkImportResult result = new BulkImportResult(rows.size());
+
+        // Reject invalid rows up front so they do not fail whole chunks
+        List<Integer> valid = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            String error = validator.apply(rows.get(i));
+            if (error != null) {
+                result.addError(i, keyOf.apply(rows.get(i)), error);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        M batchMapper = batchSqlSessionTemplate.getMapper(mapperType);
+        M rowMapper = sqlSessionTemplate.getMapper(mapperType);
+
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Integer index : chunk) {
+                        write.accept(batchMapper, rows.get(index));
+                    }
+                    batchSqlSessionTemplate.flushStatements();
+                });
+                result.addSuccess(chunk.size());
+            } catch (RuntimeException e) {
+                logger.warn("Bulk {} import chunk starting at row {} failed, retrying rows individually: {}",
+                           kind, chunk.get(0), e.getMessage());
+                for (Integer index : chunk) {
+                    try {
+                        write.accept(rowMapper, rows.get(index));
+                        result.addSuccess(1);
+                    } catch (RuntimeException rowError) {
+                        result.addError(index, keyOf.apply(rows.get(index)), rootMessage(rowError));
+                    }
+                }
+            }
+        }
+
+        result.complete(System.currentTimeMillis() - startTime);
+        logger.info("Bulk {} import finished: {}", kind, result);
+        return result;
+    }
+
+    private static String validateRoute(RouteConfig route) {
+        if (isBlank(route.getBranchCode())) {
+            return "Branch code is required";
+        }
+        if (isBlank(route.getEndpoint())) {
+            return "Endpoint is required";
+        }
+        if (isBlank(route.getPluginId())) {
+            return "Plugin ID is required";
+        }
+        return null;
+    }
+
+    private static String validateService(BranchServiceConfig service) {
+        if (isBlank(service.getBranchCode())) {
+            return "Branch code is required";
+        }
+        if (isBlank(service.getServiceId())) {
+            return "Service ID is required";
+        }
+        if (isBlank(service.getPluginId())) {
+            return "Plugin ID is required";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
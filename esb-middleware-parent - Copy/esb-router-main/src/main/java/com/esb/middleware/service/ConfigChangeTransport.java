@@ -0,0 +1,21 @@
+package com.esb.middleware.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries route and service config change notifications between router nodes.
+ * Listeners receive the changed config type (ConfigTombstone.TYPE_ROUTE or TYPE_SERVICE)
+ * and pull the changed rows themselves through delta sync.
+ */
+public interface ConfigChangeTransport {
+
+    /**
+     * Announce that config of the given type changed on this node
+     */
+    void publish(String configType);
+
+    /**
+     * Register a listener for changes announced by any node, including this one
+     */
+    void subscribe(Consumer<String> listener);
+}
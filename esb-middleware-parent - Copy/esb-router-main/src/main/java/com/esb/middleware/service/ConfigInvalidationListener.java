@@ -0,0 +1,36 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.ConfigTombstone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Applies config changes announced by any node through a delta sync of the changed type
+ */
+@Component
+public class ConfigInvalidationListener {
+
+    @Autowired
+    private ConfigChangeTransport configChangeTransport;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private BranchServiceConfigService branchServiceConfigService;
+
+    @PostConstruct
+    public void subscribe() {
+        configChangeTransport.subscribe(this::onConfigChanged);
+    }
+
+    private void onConfigChanged(String configType) {
+        if (ConfigTombstone.TYPE_ROUTE.equals(configType)) {
+            configurationService.syncChanges();
+        } else if (ConfigTombstone.TYPE_SERVICE.equals(configType)) {
+            branchServiceConfigService.syncChanges();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.esb.middleware.service;
+
+import org.springframework.cache.Cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Database fallback for routing table misses.
+ * Unknown or disabled keys are remembered in a bounded, expiring cache so they do not reach
+ * the database again, and concurrent misses on the same key share a single query.
+ */
+final class ConfigMissLoader<V> {
+
+    private final Cache negativeCache;
+    private final Map<ConfigKey, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder databaseLoads = new LongAdder();
+
+    /**
+     * @param negativeCache Cache holding unknown keys, its expiry is the negative TTL
+     */
+    ConfigMissLoader(Cache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Load config for a key that missed the routing table
+     * @param loader Database query, returns null for unknown or disabled keys
+     * @return Config, or null if the key is unknown or disabled
+     */
+    V load(String branchCode, String key, BiFunction<String, String, V> loader) {
+        ConfigKey configKey = new ConfigKey(branchCode, key);
+
+        if (negativeCache.get(configKey) != null) {
+            return null;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(configKey, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            databaseLoads.increment();
+            V value = loader.apply(branchCode, key);
+            if (value == null) {
+                negativeCache.put(configKey, Boolean.TRUE);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(configKey, future);
+        }
+    }
+
+    /**
+     * Forget all remembered misses, called when config changes
+     */
+    void clear() {
+        negativeCache.clear();
+    }
+
+    long getDatabaseLoads() {
+        return databaseLoads.sum();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class ConfigKey {
+        private final String branchCode;
+        private final String key;
+        private final int hash;
+
+        ConfigKey(String branchCode, String key) {
+            this.branchCode = branchCode;
+            this.key = key;
+            this.hash = Objects.hash(branchCode, key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ConfigKey)) {
+                return false;
+            }
+            ConfigKey other = (ConfigKey) o;
+            return Objects.equals(branchCode, other.branchCode) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return branchCode + "/" + key;
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.esb.middleware.service;
 
+import com.esb.middleware.config.CacheConfig;
+import com.esb.middleware.mapper.ConfigTombstoneMapper;
 import com.esb.middleware.mapper.RouteConfigMapper;
+import com.esb.middleware.model.BulkImportResult;
+import com.esb.middleware.model.ConfigTombstone;
 import com.esb.middleware.model.RouteConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -26,8 +36,38 @@ public class ConfigurationService {
     @Autowired
     private RouteConfigMapper routeConfigMapper;
     
-    // In-memory cache for fast route lookups
-    private final Map<String, RouteConfig> routeCache = new ConcurrentHashMap<>();
+    @Autowired
+    private ConfigTombstoneMapper configTombstoneMapper;
+    
+    @Autowired
+    private ConfigBulkImporter configBulkImporter;
+    
+    @Autowired
+    private ConfigChangeTransport configChangeTransport;
+    
+    // Compiled enabled routes, replaced on refresh and on every applied change
+    private volatile RoutingTable<RouteConfig> routingTable = compile(Collections.emptyList());
+    
+    @Value("${esb.config.sync.overlap:5000}")
+    private long syncOverlap;
+    
+    @Value("${esb.config.sync.full-reconcile-every:20}")
+    private int fullReconcileEvery;
+    
+    // Serializes full refreshes and delta syncs, guards the watermark
+    private final Object syncLock = new Object();
+    
+    // Database time of the last full refresh or delta sync
+    private LocalDateTime syncWatermark;
+    
+    // Delta syncs since the last full reconcile, guarded by syncLock
+    private int syncsSinceReconcile;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    // Database fallback for table misses, remembers unknown routes
+    private ConfigMissLoader<RouteConfig> missLoader;
     
     /**
      * Initialize configuration cache
@@ -35,27 +75,34 @@ public class ConfigurationService {
     @PostConstruct
     public void initializeCache() {
         logger.info("Initializing route configuration cache");
+        missLoader = new ConfigMissLoader<>(cacheManager.getCache(CacheConfig.ROUTE_CONFIG_MISSES));
         refreshCache();
-        logger.info("Route configuration cache initialized with {} routes", routeCache.size());
+        logger.info("Route configuration cache initialized with {} routes", routingTable.size());
     }
     
     /**
      * Get route configuration for branch and endpoint
      */
-    @Cacheable(value = "routeConfig", key = "#branchCode + '_' + #endpoint")
     public RouteConfig getRouteConfig(String branchCode, String endpoint) {
-        String cacheKey = branchCode + "_" + endpoint;
-        RouteConfig config = routeCache.get(cacheKey);
-        
-        if (config == null) {
-            // Fetch from database if not in cache
-            config = routeConfigMapper.findByBranchAndEndpoint(branchCode, endpoint);
-            if (config != null && config.isEnabled()) {
-                routeCache.put(cacheKey, config);
-            }
+        RouteConfig config = routingTable.get(branchCode, endpoint);
+        if (config != null) {
+            return config;
         }
         
-        return config != null && config.isEnabled() ? config : null;
+        // Unknown routes are answered from the negative cache, concurrent misses share one query
+        return missLoader.load(branchCode, endpoint, this::loadEnabledRoute);
+    }
+    
+    /**
+     * Fetch an enabled route from the database and publish it to the table
+     */
+    private RouteConfig loadEnabledRoute(String branchCode, String endpoint) {
+        RouteConfig config = routeConfigMapper.findByBranchAndEndpoint(branchCode, endpoint);
+        if (config != null && config.isEnabled()) {
+            addToRoutingTable(config);
+            return config;
+        }
+        return null;
     }
     
     /**
@@ -75,7 +122,6 @@ public class ConfigurationService {
     /**
      * Create new route configuration
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public RouteConfig createRoute(RouteConfig routeConfig) {
         logger.info("Creating new route: branch={}, endpoint={}, plugin={}", 
                    routeConfig.getBranchCode(), routeConfig.getEndpoint(), routeConfig.getPluginId());
@@ -85,7 +131,7 @@ public class ConfigurationService {
         
         int result = routeConfigMapper.insert(routeConfig);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.singletonList(routeConfig), Collections.emptyList());
             logger.info("Successfully created route with ID: {}", routeConfig.getId());
             return routeConfig;
         } else {
@@ -96,7 +142,6 @@ public class ConfigurationService {
     /**
      * Update existing route configuration
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public RouteConfig updateRoute(RouteConfig routeConfig) {
         logger.info("Updating route: ID={}, branch={}, endpoint={}", 
                    routeConfig.getId(), routeConfig.getBranchCode(), routeConfig.getEndpoint());
@@ -105,7 +150,7 @@ public class ConfigurationService {
         
         int result = routeConfigMapper.update(routeConfig);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.singletonList(routeConfig), Collections.emptyList());
             logger.info("Successfully updated route with ID: {}", routeConfig.getId());
             return routeConfig;
         } else {
@@ -116,13 +161,12 @@ public class ConfigurationService {
     /**
      * Delete route configuration
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public boolean deleteRoute(Long routeId) {
         logger.info("Deleting route with ID: {}", routeId);
         
         int result = routeConfigMapper.deleteById(routeId);
         if (result > 0) {
-            refreshCache();
+            applyLocalChanges(Collections.emptyList(), Collections.singletonList(routeId));
             logger.info("Successfully deleted route with ID: {}", routeId);
             return true;
         } else {
@@ -134,13 +178,18 @@ public class ConfigurationService {
     /**
      * Enable/disable route configuration
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public boolean toggleRoute(Long routeId, boolean enabled) {
         logger.info("Toggling route: ID={}, enabled={}", routeId, enabled);
         
         int result = routeConfigMapper.updateStatus(routeId, enabled);
         if (result > 0) {
-            refreshCache();
+            if (enabled) {
+                RouteConfig route = routeConfigMapper.findById(routeId);
+                applyLocalChanges(route != null ? Collections.singletonList(route) : Collections.emptyList(), 
+                            Collections.emptyList());
+            } else {
+                applyLocalChanges(Collections.emptyList(), Collections.singletonList(routeId));
+            }
             logger.info("Successfully toggled route: ID={}, enabled={}", routeId, enabled);
             return true;
         } else {
@@ -170,26 +219,153 @@ public class ConfigurationService {
         Map<String, Object> stats = new ConcurrentHashMap<>();
         stats.put("totalRoutes", routeConfigMapper.countTotal());
         stats.put("enabledRoutes", routeConfigMapper.countEnabled());
-        stats.put("cachedRoutes", routeCache.size());
+        stats.put("cachedRoutes", routingTable.size());
+        stats.put("missDatabaseLoads", missLoader.getDatabaseLoads());
         return stats;
     }
     
     /**
      * Refresh the entire configuration cache
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public void refreshCache() {
         logger.info("Refreshing route configuration cache");
         
-        routeCache.clear();
-        List<RouteConfig> allRoutes = routeConfigMapper.findAllEnabled();
+        synchronized (syncLock) {
+            // Take the watermark first so rows changed during the load are picked up by the next delta
+            LocalDateTime watermark = configTombstoneMapper.selectCurrentTime();
+            
+            // Compile the new table completely before publishing it, readers keep using the old one meanwhile
+            RoutingTable<RouteConfig> table = compile(routeConfigMapper.findAllEnabled());
+            
+            synchronized (this) {
+                routingTable = table;
+            }
+            syncWatermark = watermark;
+            // Routes may have been created or enabled, forget remembered misses
+            missLoader.clear();
+            
+            logger.info("Route configuration cache refreshed with {} routes", table.size());
+        }
+    }
+    
+    /**
+     * Apply routes changed or deleted since the last sync, including changes made by other nodes
+     * @return Number of changes applied to the routing table
+     */
+    @Scheduled(fixedDelayString = "${esb.config.sync.interval:30000}", 
+               initialDelayString = "${esb.config.sync.interval:30000}")
+    public int syncChanges() {
+        synchronized (syncLock) {
+            LocalDateTime watermark = configTombstoneMapper.selectCurrentTime();
+            
+            if (fullReconcileEvery > 0 && ++syncsSinceReconcile >= fullReconcileEvery) {
+                syncsSinceReconcile = 0;
+                int applied = reconcile();
+                syncWatermark = watermark;
+                if (applied > 0) {
+                    logger.warn("Route configuration reconcile applied {} changes missed by delta sync", applied);
+                }
+                return applied;
+            }
+            
+            // modified_date is set by the database clock, the overlap covers transactions that committed late
+            LocalDateTime since = syncWatermark.minusNanos(syncOverlap * 1_000_000L);
+            List<RouteConfig> changed = routeConfigMapper.findModifiedSince(since);
+            List<Long> removedIds = new ArrayList<>();
+            for (ConfigTombstone tombstone : configTombstoneMapper.findDeletedSince(ConfigTombstone.TYPE_ROUTE, since)) {
+                removedIds.add(tombstone.getConfigId());
+            }
+            
+            int applied = applyChanges(changed, removedIds);
+            syncWatermark = watermark;
+            
+            if (applied > 0) {
+                logger.info("Route configuration delta sync applied {} changes, {} routes cached", 
+                           applied, routingTable.size());
+            }
+            return applied;
+        }
+    }
+    
+    /**
+     * Compare the whole table with the enabled rows in the database.
+     * Catches changes whose transaction committed after the delta sync overlap had already passed them.
+     * @return Number of changes applied
+     */
+    private int reconcile() {
+        // IDs are taken before the load, so rows published on a table miss meanwhile are kept
+        Set<Long> removedIds = new HashSet<>(routingTable.ids());
+        List<RouteConfig> enabled = routeConfigMapper.findAllEnabled();
+        for (RouteConfig row : enabled) {
+            removedIds.remove(row.getId());
+        }
+        return applyChanges(enabled, new ArrayList<>(removedIds));
+    }
+    
+    /**
+     * Publish changed and deleted routes to the routing table.
+     * Disabled rows are removed and rows already in the table unchanged are skipped.
+     * @return Number of changes applied
+     */
+    private int applyChanges(List<RouteConfig> changed, List<Long> removedIds) {
+        List<RouteConfig> upserts = new ArrayList<>();
+        List<Long> removals = new ArrayList<>();
+        
+        synchronized (this) {
+            RoutingTable<RouteConfig> table = routingTable;
+            for (RouteConfig route : changed) {
+                RouteConfig current = table.getById(route.getId());
+                if (route.isEnabled()) {
+                    if (current == null || !Objects.equals(current.getModifiedDate(), route.getModifiedDate())) {
+                        upserts.add(route);
+                    }
+                } else if (current != null) {
+                    removals.add(route.getId());
+                }
+            }
+            for (Long id : removedIds) {
+                if (table.getById(id) != null) {
+                    removals.add(id);
+                }
+            }
+            routingTable = table.withChanges(upserts, removals);
+        }
         
-        for (RouteConfig route : allRoutes) {
-            String cacheKey = route.getBranchCode() + "_" + route.getEndpoint();
-            routeCache.put(cacheKey, route);
+        if (!upserts.isEmpty()) {
+            // Routes may have been created or enabled, forget remembered misses
+            missLoader.clear();
         }
+        return upserts.size() + removals.size();
+    }
+    
+    /**
+     * Apply changes made through this node and announce them to the other nodes
+     */
+    private void applyLocalChanges(List<RouteConfig> changed, List<Long> removedIds) {
+        applyChanges(changed, removedIds);
+        configChangeTransport.publish(ConfigTombstone.TYPE_ROUTE);
+    }
+    
+    /**
+     * Publish a route loaded on a table miss
+     */
+    private synchronized void addToRoutingTable(RouteConfig config) {
+        routingTable = routingTable.with(config);
+    }
+    
+    private static RoutingTable<RouteConfig> compile(List<RouteConfig> routes) {
+        return RoutingTable.of(routes, RouteConfig::getId, RouteConfig::getBranchCode, RouteConfig::getEndpoint);
+    }
+    
+    /**
+     * Cleanup old route and service tombstones
+     */
+    public int cleanupTombstones(int daysToKeep) {
+        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
+        int deletedCount = configTombstoneMapper.deleteOldTombstones(cutoffDate);
         
-        logger.info("Route configuration cache refreshed with {} routes", routeCache.size());
+        logger.info("Cleaned up {} config tombstones older than {} days", deletedCount, daysToKeep);
+        return deletedCount;
     }
     
     /**
@@ -234,35 +410,39 @@ public class ConfigurationService {
      * Get route configuration as map for quick lookup
      */
     public Map<String, RouteConfig> getRouteCacheSnapshot() {
-        return new ConcurrentHashMap<>(routeCache);
+        return routingTable.toFlatMap();
     }
     
     /**
-     * Bulk create/update routes
+     * Bulk create routes
      */
-    @CacheEvict(value = "routeConfig", allEntries = true)
     public int bulkCreateRoutes(List<RouteConfig> routes) {
-        logger.info("Bulk creating {} routes", routes.size());
+        return importRoutes(routes, false).getSuccessCount();
+    }
+    
+    /**
+     * Bulk import routes in JDBC batches, upsert updates existing branch/endpoint rows.
+     * The routing table is rebuilt once at the end.
+     */
+    public BulkImportResult importRoutes(List<RouteConfig> routes, boolean upsert) {
+        logger.info("Bulk importing {} routes, upsert={}", routes.size(), upsert);
         
-        int successCount = 0;
+        LocalDateTime now = LocalDateTime.now();
         for (RouteConfig route : routes) {
-            try {
-                route.setCreatedDate(LocalDateTime.now());
-                route.setModifiedDate(LocalDateTime.now());
-                
-                int result = routeConfigMapper.insert(route);
-                if (result > 0) {
-                    successCount++;
-                }
-            } catch (Exception e) {
-                logger.error("Failed to create route: branch={}, endpoint={}", 
-                           route.getBranchCode(), route.getEndpoint(), e);
+            if (route.getCreatedDate() == null) {
+                route.setCreatedDate(now);
             }
+            route.setModifiedDate(now);
         }
         
-        refreshCache();
-        logger.info("Successfully created {}/{} routes", successCount, routes.size());
-        return successCount;
+        BulkImportResult result = configBulkImporter.importRoutes(routes, upsert);
+        if (result.getSuccessCount() > 0) {
+            refreshCache();
+            configChangeTransport.publish(ConfigTombstone.TYPE_ROUTE);
+        }
+        
+        logger.info("Successfully imported {}/{} routes", result.getSuccessCount(), routes.size());
+        return result;
     }
     
     /**
@@ -293,7 +473,7 @@ public class ConfigurationService {
             routeConfigMapper.update(route);
         }
         
-        refreshCache();
+        applyLocalChanges(routes, Collections.emptyList());
         return routes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.mapper.ConfigVersionMapper;
+import com.esb.middleware.model.ConfigVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Config change transport backed by the config_version table.
+ * Publishing bumps the version of a config type; every node polls the few version rows
+ * and notifies its listeners when a version moved, so changes reach all nodes
+ * within one poll interval plus the delta sync.
+ */
+@Component
+@ConditionalOnProperty(name = "esb.config.invalidation.transport", havingValue = "database", matchIfMissing = true)
+public class DatabaseConfigChangeTransport implements ConfigChangeTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseConfigChangeTransport.class);
+
+    @Autowired
+    private ConfigVersionMapper configVersionMapper;
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    // Last version seen per config type, set by the first poll without notifying
+    private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
+
+    private volatile boolean baselineTaken;
+
+    @Override
+    public void publish(String configType) {
+        try {
+            configVersionMapper.incrementVersion(configType);
+        } catch (Exception e) {
+            // The scheduled delta sync still picks the change up on the other nodes
+            logger.warn("Failed to publish {} config change: {}", configType, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Poll config versions and notify listeners of the types that changed
+     */
+    @Scheduled(fixedDelayString = "${esb.config.invalidation.poll-interval:2000}")
+    public void pollVersions() {
+        List<ConfigVersion> versions;
+        try {
+            versions = configVersionMapper.findAll();
+        } catch (Exception e) {
+            logger.warn("Failed to poll config versions: {}", e.getMessage());
+            return;
+        }
+
+        for (ConfigVersion version : versions) {
+            Long previous = seenVersions.put(version.getConfigType(), version.getVersion());
+            if (baselineTaken && (previous == null || previous != version.getVersion())) {
+                logger.debug("{} config version moved from {} to {}", 
+                           version.getConfigType(), previous, version.getVersion());
+                notifyListeners(version.getConfigType());
+            }
+        }
+        baselineTaken = true;
+    }
+
+    private void notifyListeners(String configType) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(configType);
+            } catch (Exception e) {
+                logger.error("Config change listener failed for {}", configType, e);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.esb.middleware.service;
 
+import com.esb.middleware.exception.PluginRejectedException;
 import com.esb.middleware.model.*;
 import com.esb.middleware.mapper.BranchServiceConfigMapper;
 import com.esb.plugin.*;
@@ -9,9 +10,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.Map;
 import java.util.List;
 
@@ -29,6 +32,18 @@ public class EsbDynamicRouterService {
     @Autowired
     private AuditService auditService;
     
+    @Autowired
+    private PluginBatcher pluginBatcher;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private RequestIdGenerator requestIdGenerator;
+    
+    @Autowired
+    private PluginRequestTemplates pluginRequestTemplates;
+    
     @Autowired
     @Qualifier("pluginExecutor")
     private Executor pluginExecutor;
@@ -38,6 +53,15 @@ public class EsbDynamicRouterService {
      */
     public EsbResponse processRequest(String pluginId, String serviceEndpoint, String esbService,
                                     EsbRequestModel request, String sourceIp) {
+        return dispatch(pluginId, serviceEndpoint, esbService, request, sourceIp).join();
+    }
+    
+    /**
+     * Look up the service and plugin on the calling thread and hand the call to the plugin's asynchronous SPI.
+     * The future always completes normally, failures are turned into error responses.
+     */
+    private CompletableFuture<EsbResponse> dispatch(String pluginId, String serviceEndpoint, String esbService,
+                                                    EsbRequestModel request, String sourceIp) {
         
         String requestId = generateRequestId();
         long startTime = System.currentTimeMillis();
@@ -62,15 +86,33 @@ public class EsbDynamicRouterService {
                 auditService.logRequest(requestId, convertToEsbRequest(request), null, sourceIp);
                 auditService.logResponse(requestId, response, System.currentTimeMillis() - startTime);
                 
-                return response;
+                return CompletableFuture.completedFuture(response);
             }
             
             // Use plugin from service config if provided, otherwise use path parameter
             String targetPluginId = serviceConfig.getPluginId() != null ? serviceConfig.getPluginId() : pluginId;
             
+            // Idempotent services may be answered from the response cache without calling the plugin
+            ResponseCache.Key cacheKey = responseCache.keyFor(serviceConfig, targetPluginId, serviceEndpoint, esbService, request);
+            if (cacheKey != null) {
+                EsbResponse cached = responseCache.get(cacheKey, requestId);
+                if (cached != null) {
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    cached.setProcessingTime(processingTime);
+                    
+                    auditService.logRequest(requestId, convertToEsbRequest(request), targetPluginId, sourceIp);
+                    auditService.logResponse(requestId, cached, processingTime);
+                    
+                    logger.info("Answered dynamic ESB request from response cache: requestId={}, time={}ms", 
+                               requestId, processingTime);
+                    
+                    return CompletableFuture.completedFuture(cached);
+                }
+            }
+            
             // Get plugin for processing
             EsbPlugin plugin = pluginManagerService.getPlugin(targetPluginId);
-            if (plugin == null || !plugin.isHealthy()) {
+            if (plugin == null || !pluginManagerService.isPluginHealthy(targetPluginId)) {
                 logger.error("Plugin not found or unhealthy: {}", targetPluginId);
                 
                 EsbResponse response = EsbResponse.error(requestId, 
@@ -79,7 +121,7 @@ public class EsbDynamicRouterService {
                 auditService.logRequest(requestId, convertToEsbRequest(request), targetPluginId, sourceIp);
                 auditService.logResponse(requestId, response, System.currentTimeMillis() - startTime);
                 
-                return response;
+                return CompletableFuture.completedFuture(response);
             }
             
             // Log request initiation
@@ -89,11 +131,27 @@ public class EsbDynamicRouterService {
             PluginRequest pluginRequest = convertToPluginRequest(request, requestId, serviceConfig, 
                                                                 serviceEndpoint, esbService);
             
-            // Process request through plugin
-            PluginResponse pluginResponse = plugin.process(pluginRequest);
+            // Process request through plugin, batched with requests for the same endpoint if the plugin supports it
+            return pluginBatcher.submit(plugin, pluginRequest).handle((pluginResponse, ex) -> 
+                ex != null ? failedRequest(requestId, startTime, ex) 
+                           : completeRequest(requestId, startTime, pluginResponse, serviceConfig, cacheKey));
             
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failedRequest(requestId, startTime, e));
+        }
+    }
+    
+    /**
+     * Convert and audit the plugin response, caching it when the service is cached
+     */
+    private EsbResponse completeRequest(String requestId, long startTime, PluginResponse pluginResponse, 
+                                        BranchServiceConfig serviceConfig, ResponseCache.Key cacheKey) {
+        try {
             // Convert plugin response to ESB response
             EsbResponse response = convertToEsbResponse(pluginResponse, requestId);
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, serviceConfig, response);
+            }
             
             // Log response
             long processingTime = System.currentTimeMillis() - startTime;
@@ -106,18 +164,36 @@ public class EsbDynamicRouterService {
             return response;
             
         } catch (Exception e) {
-            logger.error("Error processing dynamic ESB request: requestId={}", requestId, e);
-            
-            EsbResponse response = EsbResponse.error(requestId, 
-                "PROCESSING_ERROR", "Internal processing error: " + e.getMessage());
-            
-            long processingTime = System.currentTimeMillis() - startTime;
-            response.setProcessingTime(processingTime);
+            return failedRequest(requestId, startTime, e);
+        }
+    }
+    
+    /**
+     * Build and audit the error response for a rejected or failed request
+     */
+    private EsbResponse failedRequest(String requestId, long startTime, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null 
+            ? failure.getCause() : failure;
+        Exception exception = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        
+        EsbResponse response;
+        if (cause instanceof PluginRejectedException) {
+            PluginRejectedException e = (PluginRejectedException) cause;
+            logger.warn("Plugin rejected dynamic ESB request: requestId={}, pluginId={}, reason={}", 
+                       requestId, e.getPluginId(), e.getMessage());
             
-            auditService.logError(requestId, "PROCESSING_ERROR", e.getMessage(), e);
+            response = EsbResponse.error(requestId, e.getErrorCode(), e.getMessage());
+            auditService.logError(requestId, e.getErrorCode(), e.getMessage(), e);
+        } else {
+            logger.error("Error processing dynamic ESB request: requestId={}", requestId, cause);
             
-            return response;
+            response = EsbResponse.error(requestId, 
+                "PROCESSING_ERROR", "Internal processing error: " + cause.getMessage());
+            auditService.logError(requestId, "PROCESSING_ERROR", cause.getMessage(), exception);
         }
+        
+        response.setProcessingTime(System.currentTimeMillis() - startTime);
+        return response;
     }
     
     /**
@@ -127,7 +203,8 @@ public class EsbDynamicRouterService {
                                                             String esbService, EsbRequestModel request, 
                                                             String sourceIp) {
         return CompletableFuture.supplyAsync(() -> 
-            processRequest(pluginId, serviceEndpoint, esbService, request, sourceIp), pluginExecutor);
+            dispatch(pluginId, serviceEndpoint, esbService, request, sourceIp), pluginExecutor)
+            .thenCompose(Function.identity());
     }
     
     /**
@@ -137,43 +214,25 @@ public class EsbDynamicRouterService {
                                                BranchServiceConfig serviceConfig, String serviceEndpoint,
                                                String esbService) {
         
-        PluginRequest pluginRequest = new PluginRequest(requestId, 
+        // Service headers and parameters come precompiled, only request values are added on top
+        PluginRequestTemplate template = pluginRequestTemplates.forService(serviceConfig);
+        PluginRequest pluginRequest = template.newRequest(requestId, 
             esbRequest.getEsbHeader().getBranch(), serviceEndpoint);
         
         pluginRequest.setMethod("POST");
         pluginRequest.setPayload(esbRequest);
+        if (esbRequest.getRawBody() != null) {
+            pluginRequest.setRawPayload(ByteBuffer.wrap(esbRequest.getRawBody()));
+        }
         pluginRequest.setSourceSystem(esbRequest.getEsbHeader().getSourceApplication());
         pluginRequest.setCorrelationId(esbRequest.getEsbBody().getCorrelationId());
         
-        // Add service configuration parameters
-        if (serviceConfig.getTargetUrl() != null) {
-            pluginRequest.addParameter("targetUrl", serviceConfig.getTargetUrl());
-        }
-        
-        if (serviceConfig.getServiceEndpoint() != null) {
-            pluginRequest.addParameter("serviceEndpoint", serviceConfig.getServiceEndpoint());
-        }
-        
+        // Per-request values, the service's esbService default is already in the template
         if (esbService != null) {
-            pluginRequest.addParameter("esbService", esbService);
-        } else if (serviceConfig.getEsbService() != null) {
-            pluginRequest.addParameter("esbService", serviceConfig.getEsbService());
-        }
-        
-        pluginRequest.addParameter("timeout", String.valueOf(serviceConfig.getTimeoutMs()));
-        pluginRequest.addParameter("retryCount", String.valueOf(serviceConfig.getRetryCount()));
-        pluginRequest.addParameter("serviceId", esbRequest.getEsbHeader().getServiceId());
-        pluginRequest.addParameter("targetApplication", esbRequest.getEsbHeader().getTargetApplication());
-        
-        // Add configured headers
-        if (serviceConfig.getHeaders() != null) {
-            serviceConfig.getHeaders().forEach(pluginRequest::addHeader);
-        }
-        
-        // Add configured parameters
-        if (serviceConfig.getParameters() != null) {
-            serviceConfig.getParameters().forEach(pluginRequest::addParameter);
+            template.addParameter(pluginRequest, "esbService", esbService);
         }
+        template.addParameter(pluginRequest, "serviceId", esbRequest.getEsbHeader().getServiceId());
+        template.addParameter(pluginRequest, "targetApplication", esbRequest.getEsbHeader().getTargetApplication());
         
         return pluginRequest;
     }
@@ -188,6 +247,7 @@ public class EsbDynamicRouterService {
         );
         
         esbRequest.setPayload(esbRequestModel);
+        esbRequest.setRawBody(esbRequestModel.getRawBody());
         esbRequest.setSourceSystem(esbRequestModel.getEsbHeader().getSourceApplication());
         esbRequest.setCorrelationId(esbRequestModel.getEsbBody().getCorrelationId());
         
@@ -251,7 +311,7 @@ public class EsbDynamicRouterService {
                 
                 EsbPlugin plugin = pluginManagerService.getPlugin(serviceConfig.getPluginId());
                 health.put("pluginAvailable", plugin != null);
-                health.put("pluginHealthy", plugin != null && plugin.isHealthy());
+                health.put("pluginHealthy", plugin != null && pluginManagerService.isPluginHealthy(serviceConfig.getPluginId()));
             }
             
         } catch (Exception e) {
@@ -292,7 +352,7 @@ public class EsbDynamicRouterService {
                 
                 // Test plugin health
                 EsbPlugin plugin = pluginManagerService.getPlugin(serviceConfig.getPluginId());
-                result.put("pluginHealthy", plugin != null && plugin.isHealthy());
+                result.put("pluginHealthy", plugin != null && pluginManagerService.isPluginHealthy(serviceConfig.getPluginId()));
                 result.put("status", "Service is available and ready");
             } else {
                 result.put("status", "Service is not available");
@@ -309,6 +369,6 @@ public class EsbDynamicRouterService {
     }
     
     private String generateRequestId() {
-        return "EPIXESB-" + UUID.randomUUID().toString();
+        return requestIdGenerator.nextId();
     }
 }
\ No newline at end of file
@@ -1,20 +1,29 @@
 package com.esb.middleware.service;
 
+import com.esb.middleware.exception.PluginRejectedException;
+import com.esb.middleware.model.BranchServiceConfig;
 import com.esb.middleware.model.EsbRequest;
 import com.esb.middleware.model.EsbResponse;
 import com.esb.middleware.model.RouteConfig;
 import com.esb.plugin.EsbPlugin;
 import com.esb.plugin.PluginRequest;
 import com.esb.plugin.PluginResponse;
+import com.esb.plugin.PluginStreamResponse;
+import com.esb.plugin.StreamingEsbPlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * Main ESB routing service for processing requests
@@ -27,12 +36,33 @@ public class EsbRouterService {
     @Autowired
     private ConfigurationService configurationService;
     
+    @Autowired
+    private BranchServiceConfigService branchServiceConfigService;
+    
     @Autowired
     private PluginManagerService pluginManagerService;
     
     @Autowired
     private AuditService auditService;
     
+    @Autowired
+    private PluginCircuitBreakers circuitBreakers;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private PluginBatcher pluginBatcher;
+    
+    @Autowired
+    private PluginInvoker pluginInvoker;
+    
+    @Autowired
+    private RequestIdGenerator requestIdGenerator;
+    
+    @Autowired
+    private PluginRequestTemplates pluginRequestTemplates;
+    
     @Autowired
     @Qualifier("pluginExecutor")
     private Executor pluginExecutor;
@@ -41,6 +71,17 @@ public class EsbRouterService {
      * Process ESB request synchronously
      */
     public EsbResponse processRequest(EsbRequest request, String sourceIp) {
+        return processRequest(request, sourceIp, null).join();
+    }
+    
+    /**
+     * Process ESB request, collecting audit rows into the batch when one is given.
+     * Route and plugin lookup run on the calling thread; the plugin call itself goes through
+     * the asynchronous SPI and the returned future completes when the plugin's stage does.
+     * The future always completes normally, failures are turned into error responses.
+     */
+    private CompletableFuture<EsbResponse> processRequest(EsbRequest request, String sourceIp, 
+                                                          AuditService.AuditBatch auditBatch) {
         String requestId = generateRequestId();
         long startTime = System.currentTimeMillis();
         
@@ -59,11 +100,32 @@ public class EsbRouterService {
                 EsbResponse response = EsbResponse.notFound(requestId, 
                     request.getBranchCode(), request.getEndpoint());
                 
-                auditService.logRequest(requestId, request, null, sourceIp);
-                auditService.logResponse(requestId, response, 
+                logRequest(auditBatch, requestId, request, null, sourceIp);
+                logResponse(auditBatch, requestId, response, 
                     System.currentTimeMillis() - startTime);
                 
-                return response;
+                return CompletableFuture.completedFuture(response);
+            }
+            
+            // Idempotent services may be answered from the response cache without calling the plugin
+            BranchServiceConfig serviceConfig = responseCache.isEnabled() 
+                ? branchServiceConfigService.getServiceConfig(request.getBranchCode(), request.getEndpoint()) : null;
+            ResponseCache.Key cacheKey = serviceConfig != null 
+                ? responseCache.keyFor(serviceConfig, routeConfig.getPluginId(), request.getEndpoint(), request) : null;
+            if (cacheKey != null) {
+                EsbResponse cached = responseCache.get(cacheKey, requestId);
+                if (cached != null) {
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    cached.setProcessingTime(processingTime);
+                    
+                    logRequest(auditBatch, requestId, request, routeConfig.getPluginId(), sourceIp);
+                    logResponse(auditBatch, requestId, cached, processingTime);
+                    
+                    logger.info("Answered request from response cache: requestId={}, time={}ms", 
+                               requestId, processingTime);
+                    
+                    return CompletableFuture.completedFuture(cached);
+                }
             }
             
             // Get plugin for processing
@@ -75,29 +137,47 @@ public class EsbRouterService {
                 EsbResponse response = EsbResponse.error(requestId, 
                     "PLUGIN_NOT_FOUND", "Plugin not available for processing");
                 
-                auditService.logRequest(requestId, request, routeConfig.getPluginId(), sourceIp);
-                auditService.logResponse(requestId, response, 
+                logRequest(auditBatch, requestId, request, routeConfig.getPluginId(), sourceIp);
+                logResponse(auditBatch, requestId, response, 
                     System.currentTimeMillis() - startTime);
                 
-                return response;
+                return CompletableFuture.completedFuture(response);
             }
             
             // Log request initiation
-            auditService.logRequest(requestId, request, routeConfig.getPluginId(), sourceIp);
+            logRequest(auditBatch, requestId, request, routeConfig.getPluginId(), sourceIp);
             
             // Convert to plugin request
             PluginRequest pluginRequest = convertToPluginRequest(request, requestId, routeConfig);
             
-            // Process request through plugin
-            PluginResponse pluginResponse = plugin.process(pluginRequest);
+            // Process request through plugin, batched with requests for the same endpoint if the plugin supports it
+            return pluginBatcher.submit(plugin, pluginRequest).handle((pluginResponse, ex) -> 
+                ex != null ? failedRequest(auditBatch, requestId, startTime, ex) 
+                           : completeRequest(auditBatch, requestId, startTime, pluginResponse, cacheKey, serviceConfig));
             
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failedRequest(auditBatch, requestId, startTime, e));
+        }
+    }
+    
+    /**
+     * Convert and audit the plugin response, caching it when the service is cached
+     * @param cacheKey Response cache key, or null if the service is not cached
+     */
+    private EsbResponse completeRequest(AuditService.AuditBatch auditBatch, String requestId, long startTime, 
+                                       PluginResponse pluginResponse, ResponseCache.Key cacheKey, 
+                                       BranchServiceConfig serviceConfig) {
+        try {
             // Convert plugin response to ESB response
             EsbResponse response = convertToEsbResponse(pluginResponse, requestId);
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, serviceConfig, response);
+            }
             
             // Log response
             long processingTime = System.currentTimeMillis() - startTime;
             response.setProcessingTime(processingTime);
-            auditService.logResponse(requestId, response, processingTime);
+            logResponse(auditBatch, requestId, response, processingTime);
             
             logger.info("Successfully processed request: requestId={}, status={}, time={}ms", 
                        requestId, response.getStatus(), processingTime);
@@ -105,15 +185,128 @@ public class EsbRouterService {
             return response;
             
         } catch (Exception e) {
-         //   logger.error("Error getting route health: branch={}, endpoint={}", 
-                //       branchCode, endpoint, e);
-            EsbResponse response = EsbResponse.error(requestId, 
-                    "PROCESSING_ERROR", "Internal processing error: " + e.getMessage());
-         //   health.put("error", e.getMessage());
+            return failedRequest(auditBatch, requestId, startTime, e);
+        }
+    }
+    
+    /**
+     * Build and audit the error response for a rejected or failed request
+     */
+    private EsbResponse failedRequest(AuditService.AuditBatch auditBatch, String requestId, long startTime, 
+                                      Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null 
+            ? failure.getCause() : failure;
+        Exception exception = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        
+        EsbResponse response;
+        if (cause instanceof PluginRejectedException) {
+            PluginRejectedException e = (PluginRejectedException) cause;
+            logger.warn("Plugin rejected request: requestId={}, pluginId={}, reason={}", 
+                       requestId, e.getPluginId(), e.getMessage());
+            
+            response = EsbResponse.error(requestId, e.getErrorCode(), e.getMessage());
+            logError(auditBatch, requestId, e.getErrorCode(), e.getMessage(), e);
+        } else {
+            logger.error("Error processing request: requestId={}", requestId, cause);
+            
+            response = EsbResponse.error(requestId, 
+                    "PROCESSING_ERROR", "Internal processing error: " + cause.getMessage());
+            logError(auditBatch, requestId, "PROCESSING_ERROR", cause.getMessage(), exception);
         }
-		return null;
         
-   //     return response;
+        response.setProcessingTime(System.currentTimeMillis() - startTime);
+        return response;
+    }
+    
+    /**
+     * Process a streamed ESB request on the calling thread.
+     * The body goes from the client to the plugin and the plugin's output back to the client without being
+     * buffered; audit rows carry routing data only. Only endpoints whose plugin implements StreamingEsbPlugin
+     * and supports the endpoint can be streamed.
+     * @param request Routing data, headers and parameters, without payload
+     * @return Response summary for auditing; when it is not a success and the stream response is not yet
+     *         committed, the caller should write it to the client
+     */
+    public EsbResponse processStream(EsbRequest request, InputStream body, PluginStreamResponse streamResponse, 
+                                     String sourceIp) {
+        String requestId = generateRequestId();
+        long startTime = System.currentTimeMillis();
+        
+        logger.info("Processing streamed request: requestId={}, branch={}, endpoint={}", 
+                   requestId, request.getBranchCode(), request.getEndpoint());
+        
+        try {
+            RouteConfig routeConfig = configurationService.getRouteConfig(
+                request.getBranchCode(), request.getEndpoint());
+            
+            if (routeConfig == null) {
+                EsbResponse response = EsbResponse.notFound(requestId, 
+                    request.getBranchCode(), request.getEndpoint());
+                
+                logRequest(null, requestId, request, null, sourceIp);
+                logResponse(null, requestId, response, System.currentTimeMillis() - startTime);
+                
+                return response;
+            }
+            
+            EsbPlugin plugin = pluginManagerService.getPluginForEndpoint(request.getEndpoint());
+            if (!(plugin instanceof StreamingEsbPlugin) 
+                    || !((StreamingEsbPlugin) plugin).supportsStreaming(request.getEndpoint())) {
+                logger.warn("No streaming plugin for endpoint: {}, pluginId: {}", 
+                           request.getEndpoint(), routeConfig.getPluginId());
+                
+                EsbResponse response = EsbResponse.error(requestId, 
+                    "STREAMING_NOT_SUPPORTED", "Endpoint does not support streaming: " + request.getEndpoint());
+                
+                logRequest(null, requestId, request, routeConfig.getPluginId(), sourceIp);
+                logResponse(null, requestId, response, System.currentTimeMillis() - startTime);
+                
+                return response;
+            }
+            
+            logRequest(null, requestId, request, routeConfig.getPluginId(), sourceIp);
+            
+            PluginRequest pluginRequest = convertToPluginRequest(request, requestId, routeConfig);
+            pluginInvoker.invokeStream(plugin, pluginRequest, body, streamResponse);
+            
+            EsbResponse response = EsbResponse.success(requestId, null);
+            long processingTime = System.currentTimeMillis() - startTime;
+            response.setProcessingTime(processingTime);
+            logResponse(null, requestId, response, processingTime);
+            
+            logger.info("Successfully processed streamed request: requestId={}, time={}ms", 
+                       requestId, processingTime);
+            
+            return response;
+            
+        } catch (Exception e) {
+            return failedRequest(null, requestId, startTime, e);
+        }
+    }
+    
+    /**
+     * Process a batch of ESB requests in parallel on the plugin executor.
+     * Responses are returned in input order and the audit rows are written together once all items finish.
+     */
+    public CompletableFuture<List<EsbResponse>> processBatchAsync(List<EsbRequest> requests, String sourceIp) {
+        AuditService.AuditBatch auditBatch = auditService.newBatch();
+        List<CompletableFuture<EsbResponse>> futures = new ArrayList<>(requests.size());
+        
+        for (EsbRequest request : requests) {
+            futures.add(CompletableFuture.supplyAsync(
+                () -> processRequest(request, sourceIp, auditBatch), pluginExecutor)
+                .thenCompose(Function.identity()));
+        }
+        
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(done -> {
+                List<EsbResponse> responses = new ArrayList<>(futures.size());
+                for (CompletableFuture<EsbResponse> future : futures) {
+                    responses.add(future.join());
+                }
+                auditService.logBatch(auditBatch);
+                return responses;
+            });
     }
     
     /**
@@ -127,6 +320,8 @@ public class EsbRouterService {
         
         // Get plugin statistics
         stats.putAll(pluginManagerService.getPluginStats());
+        stats.put("circuitBreakers", circuitBreakers.getBreakerStats());
+        stats.put("responseCache", responseCache.getStats());
         
         // Get audit statistics
         stats.putAll(auditService.getAuditStatistics());
@@ -136,50 +331,63 @@ public class EsbRouterService {
 
     
     /**
-     * Process ESB request asynchronously
+     * Process ESB request asynchronously.
+     * Lookup runs on the plugin executor, which is released as soon as the plugin call is handed off.
      */
     public CompletableFuture<EsbResponse> processRequestAsync(EsbRequest request, String sourceIp) {
-        return CompletableFuture.supplyAsync(() -> processRequest(request, sourceIp), pluginExecutor);
+        return CompletableFuture.supplyAsync(() -> processRequest(request, sourceIp, null), pluginExecutor)
+            .thenCompose(Function.identity());
+    }
+    
+    private void logRequest(AuditService.AuditBatch auditBatch, String requestId, EsbRequest request, 
+                            String pluginId, String sourceIp) {
+        if (auditBatch != null) {
+            auditBatch.logRequest(requestId, request, pluginId, sourceIp);
+        } else {
+            auditService.logRequest(requestId, request, pluginId, sourceIp);
+        }
+    }
+    
+    private void logResponse(AuditService.AuditBatch auditBatch, String requestId, EsbResponse response, 
+                             long processingTime) {
+        if (auditBatch != null) {
+            auditBatch.logResponse(requestId, response, processingTime);
+        } else {
+            auditService.logResponse(requestId, response, processingTime);
+        }
+    }
+    
+    private void logError(AuditService.AuditBatch auditBatch, String requestId, String errorCode, 
+                          String errorMessage, Exception exception) {
+        if (auditBatch != null) {
+            auditBatch.logError(requestId, errorCode, errorMessage, exception);
+        } else {
+            auditService.logError(requestId, errorCode, errorMessage, exception);
+        }
     }
     
     /**
      * Convert ESB request to plugin request
      */
     private PluginRequest convertToPluginRequest(EsbRequest esbRequest, String requestId, RouteConfig routeConfig) {
-        PluginRequest pluginRequest = new PluginRequest(requestId, 
+        // Route headers and parameters come precompiled, only request values are added on top
+        PluginRequestTemplate template = pluginRequestTemplates.forRoute(routeConfig);
+        PluginRequest pluginRequest = template.newRequest(requestId, 
             esbRequest.getBranchCode(), esbRequest.getEndpoint());
         
         pluginRequest.setMethod(esbRequest.getMethod());
-        pluginRequest.setPayload(esbRequest.getPayload());
-        pluginRequest.setHeaders(esbRequest.getHeaders());
-        pluginRequest.setParameters(esbRequest.getParameters());
+        // Pass the original bytes through; the plugin decodes them into its own types
+        if (esbRequest.hasRawBody()) {
+            pluginRequest.setRawPayload(ByteBuffer.wrap(esbRequest.getRawBody()));
+        } else {
+            pluginRequest.setPayload(esbRequest.getPayload());
+        }
+        template.addHeaders(pluginRequest, esbRequest.getHeaders());
+        template.addParameters(pluginRequest, esbRequest.getParameters());
         pluginRequest.setSourceSystem(esbRequest.getSourceSystem());
         pluginRequest.setCorrelationId(esbRequest.getCorrelationId());
         pluginRequest.setTimestamp(esbRequest.getTimestamp());
         
-        // Add route configuration parameters
-        if (routeConfig.getTargetUrl() != null) {
-            pluginRequest.addParameter("targetUrl", routeConfig.getTargetUrl());
-        }
-        
-        if (routeConfig.getTimeout() > 0) {
-            pluginRequest.addParameter("timeout", String.valueOf(routeConfig.getTimeout()));
-        }
-        
-        if (routeConfig.getRetryCount() > 0) {
-            pluginRequest.addParameter("retryCount", String.valueOf(routeConfig.getRetryCount()));
-        }
-        
-        // Add route headers if configured
-        if (routeConfig.getHeaders() != null) {
-            routeConfig.getHeaders().forEach(pluginRequest::addHeader);
-        }
-        
-        // Add route parameters if configured
-        if (routeConfig.getParameters() != null) {
-            routeConfig.getParameters().forEach(pluginRequest::addParameter);
-        }
-        
         return pluginRequest;
     }
     
@@ -206,7 +414,7 @@ public class EsbRouterService {
      * Generate unique request ID
      */
     private String generateRequestId() {
-        return "EPIXESB-" + UUID.randomUUID().toString();
+        return requestIdGenerator.nextId();
     }
     
     /**
@@ -239,7 +447,7 @@ public class EsbRouterService {
             }
             
             EsbPlugin plugin = pluginManagerService.getPluginForEndpoint(endpoint);
-            return plugin != null && plugin.isHealthy();
+            return plugin != null && pluginManagerService.isEndpointPluginHealthy(endpoint);
             
         } catch (Exception e) {
             logger.error("Error checking route availability: branch={}, endpoint={}", 
@@ -264,7 +472,7 @@ public class EsbRouterService {
                 
                 EsbPlugin plugin = pluginManagerService.getPluginForEndpoint(endpoint);
                 health.put("pluginAvailable", plugin != null);
-                health.put("pluginHealthy", plugin != null && plugin.isHealthy());
+                health.put("pluginHealthy", plugin != null && pluginManagerService.isEndpointPluginHealthy(endpoint));
             }
             
         } catch (Exception e) {
@@ -0,0 +1,39 @@
+package com.esb.middleware.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Config change transport that delivers changes to listeners in this JVM only.
+ * For single-node deployments and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "esb.config.invalidation.transport", havingValue = "in-process")
+public class InProcessConfigChangeTransport implements ConfigChangeTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(InProcessConfigChangeTransport.class);
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String configType) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(configType);
+            } catch (Exception e) {
+                logger.error("Config change listener failed for {}", configType, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
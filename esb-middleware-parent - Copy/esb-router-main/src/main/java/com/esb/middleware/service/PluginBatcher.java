@@ -0,0 +1,231 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.exception.PluginRejectedException;
+import com.esb.middleware.model.PluginConfigModel;
+import com.esb.plugin.EsbPlugin;
+import com.esb.plugin.PluginMetadata;
+import com.esb.plugin.PluginRequest;
+import com.esb.plugin.PluginResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups plugin calls for the same plugin and endpoint into batches.
+ * A plugin takes part when its metadata declares a "batchSize" above 1 (plugin_config can override with batch.size,
+ * 0 turns batching off). The first request of a batch opens a window of esb.plugin.batch.window ms; the batch is
+ * dispatched when the window closes or when it is full, and each caller's future completes with its own response.
+ */
+@Component
+public class PluginBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginBatcher.class);
+
+    static final String BATCH_SIZE_KEY = "batchSize";
+    static final String BATCH_SIZE_OVERRIDE_KEY = "batch.size";
+
+    @Autowired
+    private PluginInvoker pluginInvoker;
+
+    @Autowired
+    private PluginManagerService pluginManagerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PluginConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    @Qualifier("pluginBatchExecutor")
+    private Executor pluginBatchExecutor;
+
+    @Value("${esb.plugin.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${esb.plugin.batch.window:5}")
+    private long batchWindow;
+
+    @Value("${esb.plugin.batch.max-size:100}")
+    private int maxBatchSize;
+
+    private final ConcurrentHashMap<String, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, DistributionSummary> batchSizeSummaries = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory());
+
+    /**
+     * Process the request through the plugin, batched with other requests for the same endpoint when the plugin supports it
+     * @return Future completing with this request's response, or exceptionally with a PluginException
+     */
+    public CompletableFuture<PluginResponse> submit(EsbPlugin plugin, PluginRequest request) {
+        PluginMetadata metadata = plugin.getMetadata();
+        int batchSize = metadata != null ? getBatchSize(metadata) : 0;
+        if (batchSize <= 1) {
+            return pluginInvoker.invokeAsync(plugin, request);
+        }
+
+        String key = metadata.getPluginId() + "|" + request.getEndpoint();
+        CompletableFuture<PluginResponse> future = new CompletableFuture<>();
+        PendingBatch[] fullBatch = new PendingBatch[1];
+
+        pendingBatches.compute(key, (k, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch(plugin, batchSize);
+                scheduleFlush(k, batch);
+            }
+            batch.add(request, future);
+            if (batch.isFull()) {
+                fullBatch[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+
+        if (fullBatch[0] != null) {
+            dispatch(fullBatch[0]);
+        }
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        for (String key : new ArrayList<>(pendingBatches.keySet())) {
+            PendingBatch batch = pendingBatches.remove(key);
+            if (batch != null) {
+                dispatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Effective batch size for the plugin: declared batchSize, plugin_config override, capped by esb.plugin.batch.max-size
+     * and by the plugin's bulkhead, since every request in a batch takes its own permit
+     */
+    private int getBatchSize(PluginMetadata metadata) {
+        if (!batchEnabled) {
+            return 0;
+        }
+        String declared = metadata.getConfiguration() != null ? metadata.getConfiguration().get(BATCH_SIZE_KEY) : null;
+        int batchSize = 0;
+        if (declared != null) {
+            try {
+                batchSize = Integer.parseInt(declared.trim());
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring invalid batchSize on plugin {}: {}", metadata.getPluginId(), declared);
+            }
+        }
+        PluginConfigModel config = pluginManagerService.getPluginConfig(metadata.getPluginId());
+        batchSize = PluginConfigSettings.getInt(config, BATCH_SIZE_OVERRIDE_KEY, batchSize);
+        return Math.min(Math.min(batchSize, maxBatchSize), concurrencyLimiter.getMaxConcurrent(metadata.getPluginId(), config));
+    }
+
+    private void scheduleFlush(String key, PendingBatch batch) {
+        try {
+            flushScheduler.schedule(() -> {
+                if (pendingBatches.remove(key, batch)) {
+                    dispatch(batch);
+                }
+            }, batchWindow, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the batch is dispatched by shutdown()
+        }
+    }
+
+    /**
+     * Run the batch on the batch executor and complete each caller's future with its response.
+     * Nothing runs on the calling thread, which is the flush thread for closed windows and on shutdown:
+     * admission may wait for a bulkhead permit and plugins without a native processAsync run synchronously,
+     * so one slow plugin would otherwise hold back the windows of every other plugin.
+     * The executor rejects when saturated and the batch then fails with PLUGIN_BUSY.
+     */
+    private void dispatch(PendingBatch batch) {
+        String pluginId = batch.plugin.getMetadata().getPluginId();
+        batchSizeSummaries.computeIfAbsent(pluginId, id -> DistributionSummary.builder("esb.plugin.batch.size")
+                .tag("plugin", id)
+                .register(meterRegistry))
+            .record(batch.requests.size());
+
+        try {
+            pluginBatchExecutor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Batch executor saturated, rejecting batch of {} requests for plugin {}", batch.requests.size(), pluginId);
+            batch.failAll(new PluginRejectedException(pluginId, PluginRejectedException.PLUGIN_BUSY,
+                "Plugin batch executor saturated: " + pluginId));
+        }
+    }
+
+    private void run(PendingBatch batch) {
+        if (batch.requests.size() > 1) {
+            pluginInvoker.invokeBatch(batch.plugin, batch.requests, batch.futures);
+            return;
+        }
+
+        // Nothing to combine, keep the plugin's asynchronous path
+        CompletableFuture<PluginResponse> future = batch.futures.get(0);
+        pluginInvoker.invokeAsync(batch.plugin, batch.requests.get(0)).whenComplete((response, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(response);
+            }
+        });
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("PluginBatch-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * Requests collected for one plugin and endpoint, guarded by the pendingBatches entry until dispatched
+     */
+    private static final class PendingBatch {
+        private final EsbPlugin plugin;
+        private final int maxSize;
+        private final List<PluginRequest> requests;
+        private final List<CompletableFuture<PluginResponse>> futures;
+
+        PendingBatch(EsbPlugin plugin, int maxSize) {
+            this.plugin = plugin;
+            this.maxSize = maxSize;
+            this.requests = new ArrayList<>(maxSize);
+            this.futures = new ArrayList<>(maxSize);
+        }
+
+        void add(PluginRequest request, CompletableFuture<PluginResponse> future) {
+            requests.add(request);
+            futures.add(future);
+        }
+
+        boolean isFull() {
+            return requests.size() >= maxSize;
+        }
+
+        void failAll(Exception e) {
+            for (CompletableFuture<PluginResponse> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
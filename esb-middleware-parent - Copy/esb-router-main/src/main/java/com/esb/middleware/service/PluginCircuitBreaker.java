@@ -0,0 +1,219 @@
+package com.esb.middleware.service;
+
+import java.util.Objects;
+
+/**
+ * Count-based circuit breaker for one plugin.
+ * Opens when the failure rate or slow call rate over the last windowSize calls crosses its threshold,
+ * rejects calls while open, then lets a few trial calls through (half-open) to decide whether to close again.
+ */
+final class PluginCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Returned by tryAcquirePermission when the call must be rejected
+    static final long NO_PERMISSION = -1;
+
+    /**
+     * Listener for state transitions, called while the breaker lock is held
+     */
+    interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private final Settings settings;
+    private final TransitionListener listener;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int nextIndex;
+    private int recordedCalls;
+    private int failureCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    // Incremented on every transition, so results of calls granted in an earlier state are told apart
+    private long generation;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    PluginCircuitBreaker(Settings settings, TransitionListener listener) {
+        this.settings = settings;
+        this.listener = listener;
+        this.failedCalls = new boolean[settings.windowSize];
+        this.slowCalls = new boolean[settings.windowSize];
+    }
+
+    /**
+     * Ask to make a call
+     * @return Permission to pass to onResult or releasePermission, which a granted call must end with,
+     *         or NO_PERMISSION if the call must be rejected
+     */
+    synchronized long tryAcquirePermission(long now) {
+        if (state == State.OPEN) {
+            if (now - openedAt < settings.openDurationMillis) {
+                return NO_PERMISSION;
+            }
+            transitionTo(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= settings.halfOpenCalls) {
+                return NO_PERMISSION;
+            }
+            halfOpenInFlight++;
+        }
+        return generation;
+    }
+
+    /**
+     * Give back a permission whose call never reached the plugin
+     */
+    synchronized void releasePermission(long permission) {
+        if (permission == generation && state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /**
+     * Record the outcome of a permitted call.
+     * Calls granted before the last transition are ignored: a call admitted while closed that ends during
+     * half-open is no trial, and one admitted before the breaker opened says nothing about the current window.
+     */
+    synchronized void onResult(long permission, boolean failed, long durationNanos, long now) {
+        if (permission != generation) {
+            return;
+        }
+        boolean slow = durationNanos >= settings.slowCallDurationNanos;
+
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (failed || slow) {
+                transitionTo(State.OPEN, now);
+            } else if (++halfOpenSuccesses >= settings.halfOpenCalls) {
+                transitionTo(State.CLOSED, now);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        record(failed, slow);
+        if (recordedCalls >= settings.minimumCalls
+                && (getFailureRate() >= settings.failureRateThreshold || getSlowCallRate() >= settings.slowCallRateThreshold)) {
+            transitionTo(State.OPEN, now);
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return Failure rate in percent over the current window, 0 before any call
+     */
+    synchronized float getFailureRate() {
+        return recordedCalls > 0 ? failureCount * 100f / recordedCalls : 0f;
+    }
+
+    /**
+     * @return Slow call rate in percent over the current window, 0 before any call
+     */
+    synchronized float getSlowCallRate() {
+        return recordedCalls > 0 ? slowCount * 100f / recordedCalls : 0f;
+    }
+
+    Settings getSettings() {
+        return settings;
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (recordedCalls == settings.windowSize) {
+            if (failedCalls[nextIndex]) {
+                failureCount--;
+            }
+            if (slowCalls[nextIndex]) {
+                slowCount--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextIndex] = failed;
+        slowCalls[nextIndex] = slow;
+        if (failed) {
+            failureCount++;
+        }
+        if (slow) {
+            slowCount++;
+        }
+        nextIndex = (nextIndex + 1) % settings.windowSize;
+    }
+
+    private void transitionTo(State newState, long now) {
+        State previous = state;
+        state = newState;
+        generation++;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAt = now;
+        } else if (newState == State.CLOSED) {
+            nextIndex = 0;
+            recordedCalls = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+        listener.onTransition(previous, newState);
+    }
+
+    /**
+     * Breaker thresholds, compared by value so a breaker is only rebuilt when its settings change
+     */
+    static final class Settings {
+        final float failureRateThreshold;
+        final float slowCallRateThreshold;
+        final long slowCallDurationNanos;
+        final int windowSize;
+        final int minimumCalls;
+        final long openDurationMillis;
+        final int halfOpenCalls;
+
+        Settings(float failureRateThreshold, float slowCallRateThreshold, long slowCallDurationNanos,
+                 int windowSize, int minimumCalls, long openDurationMillis, int halfOpenCalls) {
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallDurationNanos = slowCallDurationNanos;
+            this.windowSize = Math.max(1, windowSize);
+            this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+            this.openDurationMillis = openDurationMillis;
+            this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            Settings other = (Settings) o;
+            return failureRateThreshold == other.failureRateThreshold
+                && slowCallRateThreshold == other.slowCallRateThreshold
+                && slowCallDurationNanos == other.slowCallDurationNanos
+                && windowSize == other.windowSize
+                && minimumCalls == other.minimumCalls
+                && openDurationMillis == other.openDurationMillis
+                && halfOpenCalls == other.halfOpenCalls;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(failureRateThreshold, slowCallRateThreshold, slowCallDurationNanos,
+                                windowSize, minimumCalls, openDurationMillis, halfOpenCalls);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.PluginConfigModel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breakers by plugin ID.
+ * Thresholds come from esb.plugin.circuit-breaker.* and can be overridden per plugin through
+ * circuit-breaker.* keys in the plugin_config configuration column.
+ * Publishes esb.plugin.circuit.state (0 closed, 1 open, 2 half-open), esb.plugin.circuit.failure.rate
+ * and esb.plugin.circuit.transitions.
+ */
+@Component
+public class PluginCircuitBreakers {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginCircuitBreakers.class);
+
+    public static final String FAILURE_RATE_THRESHOLD_KEY = "circuit-breaker.failure-rate-threshold";
+    public static final String SLOW_CALL_RATE_THRESHOLD_KEY = "circuit-breaker.slow-call-rate-threshold";
+    public static final String SLOW_CALL_DURATION_KEY = "circuit-breaker.slow-call-duration";
+    public static final String OPEN_DURATION_KEY = "circuit-breaker.open-duration";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${esb.plugin.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${esb.plugin.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${esb.plugin.circuit-breaker.slow-call-rate-threshold:100}")
+    private int slowCallRateThreshold;
+
+    @Value("${esb.plugin.circuit-breaker.slow-call-duration:10000}")
+    private long slowCallDuration;
+
+    @Value("${esb.plugin.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${esb.plugin.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${esb.plugin.circuit-breaker.open-duration:30000}")
+    private long openDuration;
+
+    @Value("${esb.plugin.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private final Map<String, Holder> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Get the breaker for a plugin, rebuilt when its settings in plugin_config change
+     * @param config Plugin config row, may be null
+     * @return Breaker, or null if circuit breaking is disabled
+     */
+    PluginCircuitBreaker get(String pluginId, PluginConfigModel config) {
+        if (!enabled) {
+            return null;
+        }
+
+        Holder holder = breakers.get(pluginId);
+        if (holder != null && holder.source == config) {
+            return holder.breaker;
+        }
+
+        return breakers.compute(pluginId, (id, existing) -> {
+            if (existing != null && existing.source == config) {
+                return existing;
+            }
+            PluginCircuitBreaker.Settings settings = settingsFor(config);
+            if (existing != null && existing.breaker.getSettings().equals(settings)) {
+                return new Holder(config, existing.breaker);
+            }
+            if (existing == null) {
+                registerGauges(id);
+            }
+            return new Holder(config, new PluginCircuitBreaker(settings, (from, to) -> onTransition(id, from, to)));
+        }).breaker;
+    }
+
+    /**
+     * Get breaker state and failure rate by plugin ID
+     */
+    public Map<String, Object> getBreakerStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        breakers.forEach((pluginId, holder) -> {
+            Map<String, Object> breakerStats = new LinkedHashMap<>();
+            breakerStats.put("state", holder.breaker.getState().name());
+            breakerStats.put("failureRate", holder.breaker.getFailureRate());
+            breakerStats.put("slowCallRate", holder.breaker.getSlowCallRate());
+            stats.put(pluginId, breakerStats);
+        });
+        return stats;
+    }
+
+    private PluginCircuitBreaker.Settings settingsFor(PluginConfigModel config) {
+        return new PluginCircuitBreaker.Settings(
+            PluginConfigSettings.getInt(config, FAILURE_RATE_THRESHOLD_KEY, failureRateThreshold),
+            PluginConfigSettings.getInt(config, SLOW_CALL_RATE_THRESHOLD_KEY, slowCallRateThreshold),
+            TimeUnit.MILLISECONDS.toNanos(PluginConfigSettings.getLong(config, SLOW_CALL_DURATION_KEY, slowCallDuration)),
+            windowSize,
+            minimumCalls,
+            PluginConfigSettings.getLong(config, OPEN_DURATION_KEY, openDuration),
+            halfOpenCalls);
+    }
+
+    private void onTransition(String pluginId, PluginCircuitBreaker.State from, PluginCircuitBreaker.State to) {
+        if (to == PluginCircuitBreaker.State.OPEN) {
+            logger.warn("Circuit breaker for plugin {} opened ({} -> {})", pluginId, from, to);
+        } else {
+            logger.info("Circuit breaker for plugin {} moved {} -> {}", pluginId, from, to);
+        }
+        meterRegistry.counter("esb.plugin.circuit.transitions",
+                              "plugin", pluginId, "from", from.name(), "to", to.name()).increment();
+    }
+
+    private void registerGauges(String pluginId) {
+        Gauge.builder("esb.plugin.circuit.state", breakers, map -> {
+                Holder holder = map.get(pluginId);
+                return holder != null ? holder.breaker.getState().ordinal() : 0;
+            })
+            .tag("plugin", pluginId)
+            .register(meterRegistry);
+        Gauge.builder("esb.plugin.circuit.failure.rate", breakers, map -> {
+                Holder holder = map.get(pluginId);
+                return holder != null ? holder.breaker.getFailureRate() : 0;
+            })
+            .tag("plugin", pluginId)
+            .register(meterRegistry);
+    }
+
+    private static final class Holder {
+        private final PluginConfigModel source;
+        private final PluginCircuitBreaker breaker;
+
+        Holder(PluginConfigModel source, PluginCircuitBreaker breaker) {
+            this.source = source;
+            this.breaker = breaker;
+        }
+    }
+}
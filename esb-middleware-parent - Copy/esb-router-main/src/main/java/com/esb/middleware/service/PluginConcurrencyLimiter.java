@@ -0,0 +1,166 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.PluginConfigModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps concurrent invocations per plugin, and optionally per service within a plugin.
+ * With virtual threads the executor no longer bounds concurrency, so each plugin gets its own permits.
+ * Limits can be overridden per plugin through bulkhead.* keys in the plugin_config configuration column.
+ */
+@Component
+public class PluginConcurrencyLimiter {
+
+    public static final String MAX_CONCURRENT_KEY = "bulkhead.max-concurrent";
+    public static final String MAX_PER_SERVICE_KEY = "bulkhead.max-per-service";
+
+    @Value("${esb.plugin.concurrency.max-per-plugin:20}")
+    private int maxPerPlugin;
+
+    @Value("${esb.plugin.concurrency.max-per-service:0}")
+    private int maxPerService;
+
+    @Value("${esb.plugin.concurrency.acquire-timeout:5000}")
+    private long acquireTimeout;
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Wait for a permit for the plugin, and for the service when a per-service limit is set
+     * @param serviceKey Endpoint the call is for, may be null
+     * @param config Plugin config row holding limit overrides, may be null
+     * @return Permit to release once the call finishes, or null if none was available within the acquire timeout
+     */
+    public Permit tryAcquire(String pluginId, String serviceKey, PluginConfigModel config) throws InterruptedException {
+        return tryAcquire(pluginId, serviceKey, config, newDeadline());
+    }
+
+    /**
+     * Wait for permits until a deadline from newDeadline(), so the calls of one batch share a single acquire timeout
+     * @return Permit to release once the call finishes, or null if none was available before the deadline
+     */
+    public Permit tryAcquire(String pluginId, String serviceKey, PluginConfigModel config, long deadline)
+            throws InterruptedException {
+        Bulkhead bulkhead = getBulkhead(pluginId, config);
+
+        // Service permit first, so a saturated service never holds plugin permits while it waits
+        Semaphore servicePermits = bulkhead.getServicePermits(serviceKey);
+        if (servicePermits != null
+                && !servicePermits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = bulkhead.permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } finally {
+            if (!acquired && servicePermits != null) {
+                servicePermits.release();
+            }
+        }
+        return acquired ? new Permit(bulkhead.permits, servicePermits) : null;
+    }
+
+    /**
+     * @return System.nanoTime() value after which tryAcquire stops waiting
+     */
+    public long newDeadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeout);
+    }
+
+    /**
+     * Get number of invocations currently running for the plugin
+     */
+    public int getInFlight(String pluginId) {
+        Bulkhead bulkhead = bulkheads.get(pluginId);
+        return bulkhead != null ? bulkhead.limit - bulkhead.permits.availablePermits() : 0;
+    }
+
+    /**
+     * Get concurrency limit in effect for the plugin
+     */
+    public int getMaxConcurrent(String pluginId) {
+        Bulkhead bulkhead = bulkheads.get(pluginId);
+        return bulkhead != null ? bulkhead.limit : maxPerPlugin;
+    }
+
+    /**
+     * Get concurrency limit for the plugin with the overrides of its plugin_config row applied
+     */
+    public int getMaxConcurrent(String pluginId, PluginConfigModel config) {
+        return getBulkhead(pluginId, config).limit;
+    }
+
+    public int getMaxPerPlugin() {
+        return maxPerPlugin;
+    }
+
+    private Bulkhead getBulkhead(String pluginId, PluginConfigModel config) {
+        Bulkhead bulkhead = bulkheads.get(pluginId);
+        if (bulkhead != null && bulkhead.source == config) {
+            return bulkhead;
+        }
+
+        return bulkheads.compute(pluginId, (id, existing) -> {
+            int limit = Math.max(1, PluginConfigSettings.getInt(config, MAX_CONCURRENT_KEY, maxPerPlugin));
+            int serviceLimit = PluginConfigSettings.getInt(config, MAX_PER_SERVICE_KEY, maxPerService);
+            if (existing != null && existing.limit == limit && existing.serviceLimit == serviceLimit) {
+                existing.source = config;
+                return existing;
+            }
+            // Calls running on a replaced bulkhead release into it, so a resize never over-releases permits
+            return new Bulkhead(config, limit, serviceLimit);
+        });
+    }
+
+    /**
+     * Permits held by one invocation
+     */
+    public static final class Permit {
+        private final Semaphore pluginPermits;
+        private final Semaphore servicePermits;
+
+        private Permit(Semaphore pluginPermits, Semaphore servicePermits) {
+            this.pluginPermits = pluginPermits;
+            this.servicePermits = servicePermits;
+        }
+
+        public void release() {
+            pluginPermits.release();
+            if (servicePermits != null) {
+                servicePermits.release();
+            }
+        }
+    }
+
+    private static final class Bulkhead {
+        private volatile PluginConfigModel source;
+        private final int limit;
+        private final int serviceLimit;
+        private final Semaphore permits;
+        private final Map<String, Semaphore> servicePermits = new ConcurrentHashMap<>();
+
+        Bulkhead(PluginConfigModel source, int limit, int serviceLimit) {
+            this.source = source;
+            this.limit = limit;
+            this.serviceLimit = serviceLimit;
+            this.permits = new Semaphore(limit);
+        }
+
+        /**
+         * @return Permits for the service, or null if services are not limited separately
+         */
+        Semaphore getServicePermits(String serviceKey) {
+            if (serviceLimit <= 0 || serviceKey == null) {
+                return null;
+            }
+            return servicePermits.computeIfAbsent(serviceKey, key -> new Semaphore(serviceLimit));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.PluginConfigModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads numeric per-plugin overrides from the plugin_config configuration column
+ */
+final class PluginConfigSettings {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginConfigSettings.class);
+
+    private PluginConfigSettings() {
+    }
+
+    /**
+     * @return Configured value for key, or defaultValue if the plugin has no valid override
+     */
+    static long getLong(PluginConfigModel config, String key, long defaultValue) {
+        String value = config != null && config.getConfiguration() != null ? config.getConfiguration().get(key) : null;
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid value for {} on plugin {}: {}", key, config.getPluginId(), value);
+            return defaultValue;
+        }
+    }
+
+    static int getInt(PluginConfigModel config, String key, int defaultValue) {
+        return (int) getLong(config, key, defaultValue);
+    }
+}
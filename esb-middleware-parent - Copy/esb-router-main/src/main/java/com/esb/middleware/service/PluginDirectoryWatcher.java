@@ -0,0 +1,205 @@
+package com.esb.middleware.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin directory and hands changed JARs to the plugin manager once they are complete.
+ * Events are debounced per file: a JAR is only passed on after no events arrived and its size and
+ * modification time stayed the same for the quiet period, so a copy in progress is never loaded.
+ * The manager then reloads only JARs whose content hash changed.
+ */
+@Component
+public class PluginDirectoryWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginDirectoryWatcher.class);
+
+    @Autowired
+    private PluginManagerService pluginManagerService;
+
+    @Value("${esb.plugin.watch.enabled:true}")
+    private boolean watchEnabled;
+
+    @Value("${esb.plugin.watch.quiet-period:2000}")
+    private long quietPeriod;
+
+    @Value("${esb.plugin.watch.max-wait:120000}")
+    private long maxWait;
+
+    // Watcher thread state only, never touched by other threads
+    private final Map<String, PendingJar> pendingJars = new HashMap<>();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() {
+        if (!watchEnabled || !pluginManagerService.isReloadEnabled()) {
+            return;
+        }
+
+        Path directory = pluginManagerService.getPluginDirectory().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("Cannot watch plugin directory {}, relying on scheduled update checks", directory, e);
+            closeWatchService();
+            return;
+        }
+
+        watcherThread = new Thread(this::run, "PluginWatcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("Watching plugin directory for updates: {}", directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        closeWatchService();
+    }
+
+    private void run() {
+        File directory = pluginManagerService.getPluginDirectory();
+        long pollInterval = Math.max(100, quietPeriod / 4);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                WatchKey key = watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collectEvents(key, directory);
+                    if (!key.reset()) {
+                        logger.warn("Plugin directory {} is no longer accessible, stopping watcher", directory);
+                        return;
+                    }
+                }
+
+                Set<String> readyJars = takeReadyJars(directory);
+                if (!readyJars.isEmpty()) {
+                    logger.info("Plugin JARs changed: {}", readyJars);
+                    pluginManagerService.reloadChangedJars(readyJars);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Error handling plugin directory changes", e);
+            }
+        }
+    }
+
+    private void collectEvents(WatchKey key, File directory) {
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, recheck every JAR in the directory
+                File[] jarFiles = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
+                if (jarFiles != null) {
+                    for (File jarFile : jarFiles) {
+                        markPending(jarFile.getName(), now);
+                    }
+                }
+                continue;
+            }
+
+            String fileName = ((Path) event.context()).getFileName().toString();
+            if (fileName.toLowerCase().endsWith(".jar")) {
+                markPending(fileName, now);
+            }
+        }
+    }
+
+    private void markPending(String fileName, long now) {
+        PendingJar pending = pendingJars.get(fileName);
+        if (pending == null) {
+            pendingJars.put(fileName, new PendingJar(now));
+        } else {
+            pending.lastEventAt = now;
+        }
+    }
+
+    /**
+     * Remove and return JARs that have been quiet and unchanged on disk for the quiet period
+     */
+    private Set<String> takeReadyJars(File directory) {
+        Set<String> ready = new HashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Map.Entry<String, PendingJar>> it = pendingJars.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, PendingJar> entry = it.next();
+            PendingJar pending = entry.getValue();
+            if (now - pending.lastEventAt < quietPeriod) {
+                continue;
+            }
+
+            File jarFile = new File(directory, entry.getKey());
+            if (!jarFile.exists()) {
+                it.remove();
+                continue;
+            }
+
+            long size = jarFile.length();
+            long lastModified = jarFile.lastModified();
+            if (size != pending.size || lastModified != pending.lastModified) {
+                // Still being written, wait for another quiet period
+                pending.size = size;
+                pending.lastModified = lastModified;
+                pending.lastEventAt = now;
+                if (now - pending.firstEventAt > maxWait) {
+                    logger.warn("Plugin JAR {} kept changing for {}ms, ignoring until its next change", entry.getKey(), maxWait);
+                    it.remove();
+                }
+                continue;
+            }
+
+            ready.add(entry.getKey());
+            it.remove();
+        }
+        return ready;
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing plugin directory watch service", e);
+            }
+        }
+    }
+
+    private static final class PendingJar {
+        private final long firstEventAt;
+        private long lastEventAt;
+        private long size = -1;
+        private long lastModified = -1;
+
+        PendingJar(long eventAt) {
+            this.firstEventAt = eventAt;
+            this.lastEventAt = eventAt;
+        }
+    }
+}
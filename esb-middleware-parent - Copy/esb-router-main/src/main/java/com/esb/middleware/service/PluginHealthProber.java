@@ -0,0 +1,124 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.plugin.PluginHealthState;
+import com.esb.middleware.plugin.PluginRegistry;
+import com.esb.plugin.EsbPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Probes plugin health in the background and stores the result in the registry,
+ * so the request path reads cached state instead of calling plugin.isHealthy().
+ * A probe that is still running when the next round starts is not restarted.
+ */
+@Component
+public class PluginHealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginHealthProber.class);
+
+    @Autowired
+    private PluginRegistry pluginRegistry;
+
+    @Value("${esb.plugin.health.timeout:2000}")
+    private long probeTimeout;
+
+    @Value("${esb.plugin.health.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${esb.plugin.health.success-threshold:2}")
+    private int successThreshold;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService probeExecutor = Executors.newCachedThreadPool(daemonThreadFactory());
+
+    /**
+     * Start a health probe for every registered plugin
+     */
+    @Scheduled(fixedDelayString = "${esb.plugin.health.interval:10000}")
+    public void probePlugins() {
+        for (String pluginId : new ArrayList<>(pluginRegistry.getAllPluginIds())) {
+            EsbPlugin plugin = pluginRegistry.getPlugin(pluginId);
+            if (plugin == null || !inFlight.add(pluginId)) {
+                continue;
+            }
+
+            long startTime = System.currentTimeMillis();
+            CompletableFuture<Boolean> probe;
+            try {
+                probe = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return plugin.isHealthy();
+                    } finally {
+                        inFlight.remove(pluginId);
+                    }
+                }, probeExecutor);
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(pluginId);
+                return;
+            }
+
+            probe.orTimeout(probeTimeout, TimeUnit.MILLISECONDS)
+                 .whenComplete((passed, error) -> recordResult(pluginId, plugin, startTime, passed, error));
+        }
+    }
+
+    private void recordResult(String pluginId, EsbPlugin plugin, long startTime, Boolean passed, Throwable error) {
+        PluginHealthState previous = pluginRegistry.getHealthState(pluginId);
+        if (previous == null) {
+            return;
+        }
+
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean ok = cause == null && Boolean.TRUE.equals(passed);
+        String reason = null;
+        if (cause instanceof TimeoutException) {
+            reason = "Health check timed out after " + probeTimeout + "ms";
+        } else if (cause != null) {
+            reason = cause.toString();
+        } else if (!ok) {
+            reason = "Health check returned false";
+        }
+
+        long now = System.currentTimeMillis();
+        PluginHealthState next = previous.next(ok, now, now - startTime, reason, failureThreshold, successThreshold);
+        pluginRegistry.updateHealthState(pluginId, plugin, next);
+
+        if (previous.isHealthy() && !next.isHealthy()) {
+            logger.warn("Plugin {} marked unhealthy after {} failed health checks: {}",
+                       pluginId, next.getConsecutiveFailures(), reason);
+        } else if (!previous.isHealthy() && next.isHealthy()) {
+            logger.info("Plugin {} recovered after {} passed health checks", pluginId, next.getConsecutiveSuccesses());
+        } else if (!ok) {
+            logger.debug("Plugin {} failed health check: {}", pluginId, reason);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("PluginHealth-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,383 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.config.PluginConfig;
+import com.esb.middleware.exception.PluginRejectedException;
+import com.esb.middleware.model.PluginConfigModel;
+import com.esb.middleware.plugin.PluginInstance;
+import com.esb.middleware.plugin.PluginRegistry;
+import com.esb.plugin.EsbPlugin;
+import com.esb.plugin.PluginException;
+import com.esb.plugin.PluginRequest;
+import com.esb.plugin.PluginResponse;
+import com.esb.plugin.PluginStreamResponse;
+import com.esb.plugin.StreamingEsbPlugin;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Invokes plugins behind their circuit breaker and bulkhead, and records invocation metrics.
+ * Each call holds a lease on the plugin instance so a hot swap destroys the old version only after the call ends.
+ * Timers are tagged with the executor mode so platform and virtual thread runs can be compared,
+ * and are registered once per plugin so the call path never goes through the meter registry.
+ * Asynchronous calls keep their permits and lease until the plugin's stage completes.
+ */
+@Component
+public class PluginInvoker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PluginInvoker.class);
+
+    @Autowired
+    private PluginConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private PluginCircuitBreakers circuitBreakers;
+
+    @Autowired
+    private PluginManagerService pluginManagerService;
+
+    @Autowired
+    private PluginRegistry pluginRegistry;
+
+    @Autowired
+    private PluginConfig pluginConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${esb.plugin.invocation.timeout:60000}")
+    private long invocationTimeout;
+
+    private final Map<String, PluginMeters> pluginMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Process request through the plugin
+     * @throws PluginRejectedException if the circuit breaker is open or no permit is available in time
+     * @throws PluginException if the plugin fails
+     */
+    public PluginResponse invoke(EsbPlugin plugin, PluginRequest request) throws PluginException {
+        Invocation invocation = admit(plugin, request);
+        boolean failed = true;
+        try {
+            PluginResponse response = invocation.instance.getPlugin().process(request);
+            failed = isFailure(response);
+            return response;
+        } finally {
+            invocation.finish(failed);
+        }
+    }
+
+    /**
+     * Process request through the plugin's asynchronous SPI.
+     * Admission (circuit breaker, bulkhead, instance lease) happens on the calling thread; the permits
+     * and the lease are held until the plugin's stage completes, not until this method returns.
+     * The returned future fails with PLUGIN_TIMEOUT once esb.plugin.invocation.timeout passes, but a stage
+     * still pending then keeps its permits and lease until it completes, so a hung plugin fills its bulkhead.
+     * @return Future completing with the plugin response, or exceptionally with a PluginException
+     *         (PluginRejectedException if the call was not admitted)
+     */
+    public CompletableFuture<PluginResponse> invokeAsync(EsbPlugin plugin, PluginRequest request) {
+        Invocation invocation;
+        try {
+            invocation = admit(plugin, request);
+        } catch (PluginException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<PluginResponse> stage;
+        try {
+            CompletionStage<PluginResponse> pluginStage = invocation.instance.getPlugin().processAsync(request);
+            stage = pluginStage != null ? pluginStage.toCompletableFuture()
+                : CompletableFuture.failedFuture(new PluginException(invocation.pluginId, "PROCESSING_ERROR",
+                    "Plugin returned no result stage"));
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+
+        // Only the caller stops waiting on timeout, the plugin's own stage keeps its permits and lease
+        CompletableFuture<PluginResponse> result = new CompletableFuture<>();
+        CompletableFuture<Void> deadline = new CompletableFuture<>();
+        deadline.orTimeout(invocationTimeout, TimeUnit.MILLISECONDS).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(toPluginException(invocation.pluginId, ex));
+            }
+        });
+        stage.whenComplete((response, ex) -> {
+            deadline.complete(null);
+            invocation.finish(ex != null || isFailure(response));
+            if (ex != null) {
+                result.completeExceptionally(toPluginException(invocation.pluginId, ex));
+            } else {
+                result.complete(response);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Process a batch of requests for one endpoint through the plugin's batch SPI.
+     * Plugins fan a batch out into one call per request, so each request is admitted on its own (circuit breaker
+     * permission, bulkhead permit, instance lease) and records its own outcome. Admission of the whole batch
+     * waits at most one esb.plugin.concurrency.acquire-timeout; requests not admitted by then are left out of
+     * the batch and their futures fail with a PluginRejectedException.
+     * @param futures One future per request, completed with its response or exceptionally with a PluginException
+     */
+    public void invokeBatch(EsbPlugin plugin, List<PluginRequest> requests, List<CompletableFuture<PluginResponse>> futures) {
+        long deadline = concurrencyLimiter.newDeadline();
+        List<Invocation> invocations = new ArrayList<>(requests.size());
+        List<PluginRequest> admittedRequests = new ArrayList<>(requests.size());
+        List<CompletableFuture<PluginResponse>> admittedFutures = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                invocations.add(admit(plugin, requests.get(i), deadline));
+                admittedRequests.add(requests.get(i));
+                admittedFutures.add(futures.get(i));
+            } catch (PluginException e) {
+                futures.get(i).completeExceptionally(e);
+            }
+        }
+        if (invocations.isEmpty()) {
+            return;
+        }
+
+        // Every admitted request holds a lease, the batch runs on the instance leased first
+        String pluginId = invocations.get(0).pluginId;
+        List<PluginResponse> responses = null;
+        PluginException failure = null;
+        try {
+            responses = invocations.get(0).instance.getPlugin().processBatch(admittedRequests);
+            if (responses == null || responses.size() != admittedRequests.size()) {
+                throw new PluginException(pluginId, "PROCESSING_ERROR", "Plugin returned "
+                    + (responses == null ? 0 : responses.size()) + " responses for a batch of " + admittedRequests.size());
+            }
+        } catch (PluginException | RuntimeException e) {
+            failure = toPluginException(pluginId, e);
+            logger.warn("Batch of {} requests failed on plugin {}: {}", admittedRequests.size(), pluginId, e.getMessage());
+        }
+
+        for (int i = 0; i < invocations.size(); i++) {
+            PluginResponse response = failure == null ? responses.get(i) : null;
+            invocations.get(i).finish(failure != null || isFailure(response));
+            if (failure != null) {
+                admittedFutures.get(i).completeExceptionally(failure);
+            } else {
+                admittedFutures.get(i).complete(response);
+            }
+        }
+    }
+
+    /**
+     * Process a streamed request through the plugin's streaming SPI on the calling thread.
+     * The permits and the lease are held until the plugin has finished reading the body and writing the response.
+     * @throws PluginRejectedException if the call was not admitted
+     * @throws PluginException if the plugin fails or its current version does not support streaming
+     */
+    public void invokeStream(EsbPlugin plugin, PluginRequest request, InputStream body, 
+                             PluginStreamResponse response) throws PluginException {
+        Invocation invocation = admit(plugin, request);
+        boolean failed = true;
+        try {
+            EsbPlugin target = invocation.instance.getPlugin();
+            if (!(target instanceof StreamingEsbPlugin)) {
+                throw new PluginException(invocation.pluginId, "STREAMING_NOT_SUPPORTED", 
+                    "Plugin does not support streaming: " + invocation.pluginId);
+            }
+            ((StreamingEsbPlugin) target).processStream(request, body, response);
+            failed = false;
+        } finally {
+            invocation.finish(failed);
+        }
+    }
+
+    /**
+     * Pass the circuit breaker and bulkhead and lease the plugin instance.
+     * Everything acquired here is released by Invocation.finish().
+     */
+    private Invocation admit(EsbPlugin plugin, PluginRequest request) throws PluginException {
+        return admit(plugin, request, concurrencyLimiter.newDeadline());
+    }
+
+    /**
+     * Admit a call, waiting for a bulkhead permit until the given deadline
+     */
+    private Invocation admit(EsbPlugin plugin, PluginRequest request, long permitDeadline) throws PluginException {
+        String pluginId = getPluginId(plugin);
+        PluginMeters meters = getMeters(pluginId);
+        PluginConfigModel config = pluginManagerService.getPluginConfig(pluginId);
+
+        PluginCircuitBreaker breaker = circuitBreakers.get(pluginId, config);
+        long permission = breaker != null ? breaker.tryAcquirePermission(System.currentTimeMillis()) : 0;
+        if (permission == PluginCircuitBreaker.NO_PERMISSION) {
+            meters.circuitOpen.increment();
+            throw new PluginRejectedException(pluginId, PluginRejectedException.PLUGIN_NOT_AVAILABLE,
+                "Plugin not available, circuit breaker open: " + pluginId);
+        }
+
+        long waitStart = System.nanoTime();
+        PluginConcurrencyLimiter.Permit permit;
+        try {
+            permit = concurrencyLimiter.tryAcquire(pluginId, request.getEndpoint(), config, permitDeadline);
+        } catch (InterruptedException e) {
+            releasePermission(breaker, permission);
+            Thread.currentThread().interrupt();
+            throw new PluginException(pluginId, "PLUGIN_INTERRUPTED", "Interrupted waiting for plugin", e);
+        }
+        if (permit == null) {
+            releasePermission(breaker, permission);
+            meters.bulkheadFull.increment();
+            throw new PluginRejectedException(pluginId, PluginRejectedException.PLUGIN_BUSY,
+                "Plugin concurrency limit reached: " + concurrencyLimiter.getMaxConcurrent(pluginId));
+        }
+
+        PluginInstance instance = acquireInstance(pluginId, plugin);
+        if (instance == null) {
+            permit.release();
+            releasePermission(breaker, permission);
+            throw new PluginRejectedException(pluginId, PluginRejectedException.PLUGIN_NOT_AVAILABLE,
+                "Plugin not available: " + pluginId);
+        }
+
+        long start = System.nanoTime();
+        meters.permitWait.record(start - waitStart, TimeUnit.NANOSECONDS);
+        return new Invocation(pluginId, request.getRequestId(), meters, breaker, permission, permit, instance, start);
+    }
+
+    /**
+     * Lease the plugin instance for one call, moving to its replacement if it was swapped out after lookup
+     * @return Leased instance, or null if the plugin is no longer registered
+     */
+    private PluginInstance acquireInstance(String pluginId, EsbPlugin plugin) {
+        PluginInstance instance = pluginRegistry.acquire(plugin);
+        if (instance == null) {
+            EsbPlugin current = pluginRegistry.getPlugin(pluginId);
+            if (current != null && current != plugin) {
+                instance = pluginRegistry.acquire(current);
+            }
+        }
+        return instance;
+    }
+
+    private PluginException toPluginException(String pluginId, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof PluginException) {
+            return (PluginException) cause;
+        }
+        if (cause instanceof TimeoutException) {
+            return new PluginException(pluginId, "PLUGIN_TIMEOUT",
+                "Plugin did not respond within " + invocationTimeout + "ms", cause);
+        }
+        return new PluginException(pluginId, "PROCESSING_ERROR", "Plugin processing failed: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Plugins report most failures as error responses rather than exceptions, so anything but SUCCESS counts
+     */
+    private static boolean isFailure(PluginResponse response) {
+        return response == null || !"SUCCESS".equals(response.getStatus());
+    }
+
+    private void releasePermission(PluginCircuitBreaker breaker, long permission) {
+        if (breaker != null) {
+            breaker.releasePermission(permission);
+        }
+    }
+
+    private PluginMeters getMeters(String pluginId) {
+        PluginMeters meters = pluginMeters.get(pluginId);
+        return meters != null ? meters : pluginMeters.computeIfAbsent(pluginId, PluginMeters::new);
+    }
+
+    private String getPluginId(EsbPlugin plugin) {
+        return plugin.getMetadata() != null ? plugin.getMetadata().getPluginId() : plugin.getClass().getName();
+    }
+
+    /**
+     * Resources held by one admitted call
+     */
+    private final class Invocation {
+        private final String pluginId;
+        private final String requestId;
+        private final PluginMeters meters;
+        private final PluginCircuitBreaker breaker;
+        private final long permission;
+        private final PluginConcurrencyLimiter.Permit permit;
+        private final PluginInstance instance;
+        private final long start;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Invocation(String pluginId, String requestId, PluginMeters meters, PluginCircuitBreaker breaker,
+                   long permission, PluginConcurrencyLimiter.Permit permit, PluginInstance instance, long start) {
+            this.pluginId = pluginId;
+            this.requestId = requestId;
+            this.meters = meters;
+            this.breaker = breaker;
+            this.permission = permission;
+            this.permit = permit;
+            this.instance = instance;
+            this.start = start;
+        }
+
+        /**
+         * Release the lease and permits and record the outcome, once
+         */
+        void finish(boolean failed) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            instance.release();
+            permit.release();
+            long duration = System.nanoTime() - start;
+            if (breaker != null) {
+                breaker.onResult(permission, failed, duration, System.currentTimeMillis());
+            }
+            (failed ? meters.invocationError : meters.invocationSuccess).record(duration, TimeUnit.NANOSECONDS);
+            logger.debug("Plugin invocation finished: pluginId={}, requestId={}, outcome={}",
+                        pluginId, requestId, failed ? "error" : "success");
+        }
+    }
+
+    /**
+     * Meters of one plugin, registered on its first call
+     */
+    private final class PluginMeters {
+        private final Timer permitWait;
+        private final Timer invocationSuccess;
+        private final Timer invocationError;
+        private final Counter circuitOpen;
+        private final Counter bulkheadFull;
+
+        PluginMeters(String pluginId) {
+            String mode = pluginConfig.getExecutorMode();
+            permitWait = Timer.builder("esb.plugin.permit.wait")
+                .tag("plugin", pluginId).tag("mode", mode).register(meterRegistry);
+            invocationSuccess = Timer.builder("esb.plugin.invocation")
+                .tag("plugin", pluginId).tag("mode", mode).tag("outcome", "success").register(meterRegistry);
+            invocationError = Timer.builder("esb.plugin.invocation")
+                .tag("plugin", pluginId).tag("mode", mode).tag("outcome", "error").register(meterRegistry);
+            circuitOpen = meterRegistry.counter("esb.plugin.rejected", "plugin", pluginId, "reason", "circuit_open");
+            bulkheadFull = meterRegistry.counter("esb.plugin.rejected", "plugin", pluginId, "reason", "bulkhead_full");
+            Gauge.builder("esb.plugin.inflight", concurrencyLimiter, limiter -> limiter.getInFlight(pluginId))
+                .tag("plugin", pluginId)
+                .tag("mode", mode)
+                .register(meterRegistry);
+        }
+    }
+}
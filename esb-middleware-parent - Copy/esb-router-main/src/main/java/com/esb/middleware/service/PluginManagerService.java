@@ -1,29 +1,44 @@
 package com.esb.middleware.service;
 
+import com.esb.middleware.config.CacheConfig;
 import com.esb.middleware.mapper.PluginConfigMapper;
 import com.esb.middleware.model.PluginConfigModel;
+import com.esb.middleware.plugin.JarFingerprint;
+import com.esb.middleware.plugin.PluginInstance;
 import com.esb.middleware.plugin.PluginLoader;
 import com.esb.middleware.plugin.PluginRegistry;
 import com.esb.plugin.EsbPlugin;
 import com.esb.plugin.PluginConfiguration;
 import com.esb.plugin.PluginException;
 import com.esb.plugin.PluginMetadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service for managing plugin lifecycle and operations
+ * Service for managing plugin lifecycle and operations.
+ * Enabled plugins are loaded in parallel at startup; plugins marked startup.lazy=true in their
+ * configuration can be deferred until the first request that needs them.
  */
 @Service
 public class PluginManagerService {
@@ -39,13 +54,55 @@ public class PluginManagerService {
     @Autowired
     private PluginConfigMapper pluginConfigMapper;
     
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Value("${esb.plugin.directory:./plugins}")
     private String pluginDirectory;
     
     @Value("${esb.plugin.reload.enabled:true}")
     private boolean reloadEnabled;
     
-    private final Map<String, Long> jarFileModifiedTimes = new ConcurrentHashMap<>();
+    @Value("${esb.plugin.watch.quiet-period:2000}")
+    private long quietPeriod;
+    
+    @Value("${esb.plugin.reload.drain-timeout:30000}")
+    private long drainTimeout;
+    
+    @Value("${esb.plugin.startup.parallelism:4}")
+    private int startupParallelism;
+    
+    @Value("${esb.plugin.startup.background:false}")
+    private boolean startupInBackground;
+    
+    @Value("${esb.plugin.startup.lazy-enabled:false}")
+    private boolean lazyEnabled;
+    
+    @Value("${esb.plugin.startup.critical:}")
+    private String criticalPlugins;
+    
+    public static final String LAZY_STARTUP_KEY = "startup.lazy";
+    
+    // Content fingerprint of the JAR each loaded plugin came from
+    private final Map<String, JarFingerprint> jarFingerprints = new ConcurrentHashMap<>();
+    
+    // Destroys replaced plugin versions once their in-flight calls finish
+    private final ExecutorService retirementExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("PluginRetire-"));
+    
+    // Plugin config rows by plugin ID, refreshed in the background
+    private Cache pluginConfigCache;
+    
+    // Startup state: deferred plugins and their endpoints, first-use loads in progress, load times and failures
+    private final Map<String, PluginConfigModel> lazyPlugins = new ConcurrentHashMap<>();
+    private final Map<String, String> lazyEndpoints = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<EsbPlugin>> lazyLoads = new ConcurrentHashMap<>();
+    private final Map<String, Long> startupDurations = new ConcurrentHashMap<>();
+    private final Map<String, String> startupFailures = new ConcurrentHashMap<>();
+    private Set<String> criticalPluginIds = Collections.emptySet();
+    private volatile CompletableFuture<Void> startup = new CompletableFuture<>();
     
     /**
      * Initialize and load all plugins from database configuration
@@ -53,42 +110,184 @@ public class PluginManagerService {
     @PostConstruct
     public void initializePlugins() {
         logger.info("Initializing plugin manager and loading plugins from database");
+        pluginConfigCache = cacheManager.getCache(CacheConfig.PLUGIN_CONFIG);
+        criticalPluginIds = parsePluginIds(criticalPlugins);
         
         try {
             List<PluginConfigModel> pluginConfigs = pluginConfigMapper.findAllEnabled();
-            logger.info("Found {} enabled plugins in database", pluginConfigs.size());
             
+            List<PluginConfigModel> eagerConfigs = new ArrayList<>();
             for (PluginConfigModel config : pluginConfigs) {
-                try {
-                    loadPluginFromConfig(config);
-                } catch (Exception e) {
-                    logger.error("Failed to load plugin: {}", config.getPluginId(), e);
-                    // Update plugin status to ERROR
-                    pluginConfigMapper.updateStatus(config.getPluginId(), false, "ERROR");
+                if (isLazy(config)) {
+                    deferPlugin(config);
+                } else {
+                    eagerConfigs.add(config);
                 }
             }
+            logger.info("Found {} enabled plugins in database, {} deferred until first use", 
+                       pluginConfigs.size(), lazyPlugins.size());
+            
+            long startTime = System.currentTimeMillis();
+            ExecutorService startupExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(startupParallelism, eagerConfigs.size())), daemonThreadFactory("PluginStartup-"));
+            
+            CompletableFuture<?>[] loads = eagerConfigs.stream()
+                .map(config -> CompletableFuture.runAsync(() -> loadAtStartup(config), startupExecutor))
+                .toArray(CompletableFuture[]::new);
+            
+            CompletableFuture.allOf(loads).whenComplete((result, error) -> {
+                startupExecutor.shutdown();
+                logger.info("Plugin initialization completed. Loaded {} plugins in {}ms", 
+                           pluginRegistry.getAllPluginIds().size(), System.currentTimeMillis() - startTime);
+                startup.complete(null);
+            });
             
-            logger.info("Plugin initialization completed. Loaded {} plugins", 
-                       pluginRegistry.getAllPluginIds().size());
+            if (!startupInBackground) {
+                startup.join();
+            }
                        
         } catch (Exception e) {
             logger.error("Error during plugin initialization", e);
+            startup.complete(null);
         }
     }
     
+    /**
+     * Load one plugin during startup, recording its load time or failure
+     */
+    private void loadAtStartup(PluginConfigModel config) {
+        long start = System.nanoTime();
+        try {
+            loadPluginFromConfig(config);
+            recordStartup(config.getPluginId(), start, "eager");
+        } catch (Exception e) {
+            logger.error("Failed to load plugin: {}", config.getPluginId(), e);
+            startupFailures.put(config.getPluginId(), String.valueOf(e.getMessage()));
+            // Update plugin status to ERROR
+            pluginConfigMapper.updateStatus(config.getPluginId(), false, "ERROR");
+            pluginConfigCache.evict(config.getPluginId());
+        }
+    }
+    
+    /**
+     * Load a deferred plugin on first use; concurrent first requests share one load
+     * @return Loaded plugin, or null if it failed to load
+     */
+    private EsbPlugin loadLazily(String pluginId) {
+        PluginConfigModel config = lazyPlugins.get(pluginId);
+        if (config == null) {
+            return pluginRegistry.getPlugin(pluginId);
+        }
+        
+        CompletableFuture<EsbPlugin> future = new CompletableFuture<>();
+        CompletableFuture<EsbPlugin> existing = lazyLoads.putIfAbsent(pluginId, future);
+        if (existing != null) {
+            return existing.join();
+        }
+        
+        try {
+            logger.info("Loading deferred plugin on first use: {}", pluginId);
+            long start = System.nanoTime();
+            loadPluginFromConfig(config);
+            recordStartup(pluginId, start, "lazy");
+            
+            EsbPlugin plugin = pluginRegistry.getPlugin(pluginId);
+            future.complete(plugin);
+            return plugin;
+        } catch (Exception e) {
+            logger.error("Failed to load deferred plugin: {}", pluginId, e);
+            forgetDeferred(pluginId);
+            startupFailures.put(pluginId, String.valueOf(e.getMessage()));
+            pluginConfigMapper.updateStatus(pluginId, false, "ERROR");
+            pluginConfigCache.evict(pluginId);
+            future.complete(null);
+            return null;
+        } finally {
+            lazyLoads.remove(pluginId, future);
+        }
+    }
+    
+    private boolean isLazy(PluginConfigModel config) {
+        return lazyEnabled 
+            && !criticalPluginIds.contains(config.getPluginId())
+            && config.getConfiguration() != null
+            && "true".equalsIgnoreCase(config.getConfiguration().get(LAZY_STARTUP_KEY));
+    }
+    
+    /**
+     * Remember a plugin to load on first use, indexed by the endpoints in its configuration
+     */
+    private void deferPlugin(PluginConfigModel config) {
+        lazyPlugins.put(config.getPluginId(), config);
+        if (config.getSupportedEndpoints() != null) {
+            for (String endpoint : config.getSupportedEndpoints().split(",")) {
+                if (!endpoint.trim().isEmpty()) {
+                    lazyEndpoints.putIfAbsent(endpoint.trim(), config.getPluginId());
+                }
+            }
+        }
+    }
+    
+    private void forgetDeferred(String pluginId) {
+        if (lazyPlugins.remove(pluginId) != null) {
+            lazyEndpoints.values().removeIf(pluginId::equals);
+        }
+    }
+    
+    private void recordStartup(String pluginId, long startNanos, String mode) {
+        long duration = System.nanoTime() - startNanos;
+        startupDurations.put(pluginId, TimeUnit.NANOSECONDS.toMillis(duration));
+        startupFailures.remove(pluginId);
+        Timer.builder("esb.plugin.startup")
+            .tag("plugin", pluginId)
+            .tag("mode", mode)
+            .register(meterRegistry)
+            .record(duration, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Get startup progress for the readiness check.
+     * Ready once every critical plugin is loaded, or when none are configured, once startup loading has finished.
+     */
+    public Map<String, Object> getStartupStatus() {
+        List<String> pendingCritical = new ArrayList<>();
+        for (String pluginId : criticalPluginIds) {
+            if (pluginRegistry.getPlugin(pluginId) == null) {
+                pendingCritical.add(pluginId);
+            }
+        }
+        boolean startupComplete = startup.isDone();
+        boolean ready = pendingCritical.isEmpty() && (startupComplete || !criticalPluginIds.isEmpty());
+        
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", ready);
+        status.put("startupComplete", startupComplete);
+        status.put("pendingCritical", pendingCritical);
+        status.put("failed", new TreeMap<>(startupFailures));
+        status.put("deferred", new TreeSet<>(lazyPlugins.keySet()));
+        status.put("loadTimes", new TreeMap<>(startupDurations));
+        return status;
+    }
+    
+    private static Set<String> parsePluginIds(String pluginIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (pluginIds != null) {
+            for (String pluginId : pluginIds.split(",")) {
+                if (!pluginId.trim().isEmpty()) {
+                    ids.add(pluginId.trim());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+    
     /**
      * Load plugin from configuration
      */
     public void loadPluginFromConfig(PluginConfigModel config) throws PluginException {
         logger.info("Loading plugin: {} from config", config.getPluginId());
         
-        File pluginDir = new File(pluginDirectory);
-        File jarFile = new File(pluginDir, config.getJarFileName());
-        
-        if (!jarFile.exists()) {
-            throw new PluginException(config.getPluginId(), "JAR_NOT_FOUND", 
-                "JAR file not found: " + jarFile.getAbsolutePath());
-        }
+        File jarFile = getJarFile(config);
         
         // Load plugin using plugin loader
         EsbPlugin plugin = pluginLoader.loadPlugin(config.getPluginId(), jarFile, config.getMainClass());
@@ -97,15 +296,19 @@ public class PluginManagerService {
         PluginConfiguration pluginConfig = createPluginConfiguration(config);
         plugin.initialize(pluginConfig);
         
-        // Register plugin in registry
-        pluginRegistry.registerPlugin(config.getPluginId(), plugin);
+        // Register plugin in registry, a lazy load racing a reload or toggle may replace a live instance
+        PluginInstance replaced = pluginRegistry.registerPlugin(config.getPluginId(), plugin);
         
         // Update load time and status in database
         pluginConfigMapper.updateLoadedTime(config.getPluginId(), LocalDateTime.now());
         pluginConfigMapper.updateStatus(config.getPluginId(), true, "LOADED");
+        pluginConfigCache.evict(config.getPluginId());
+        
+        // Track JAR file content
+        trackJar(config.getPluginId(), jarFile);
+        forgetDeferred(config.getPluginId());
         
-        // Track JAR file modification time
-        jarFileModifiedTimes.put(config.getPluginId(), jarFile.lastModified());
+        retireWhenDrained(replaced);
         
         logger.info("Successfully loaded and initialized plugin: {}", config.getPluginId());
     }
@@ -148,13 +351,14 @@ public class PluginManagerService {
         }
         
         pluginConfigMapper.insert(config);
+        pluginConfigCache.evict(pluginId);
         
         // Initialize and register plugin
         PluginConfiguration pluginConfig = createPluginConfiguration(config);
         plugin.initialize(pluginConfig);
         pluginRegistry.registerPlugin(pluginId, plugin);
         
-        jarFileModifiedTimes.put(pluginId, jarFile.lastModified());
+        trackJar(pluginId, jarFile);
         
         logger.info("Successfully deployed plugin: {}", pluginId);
     }
@@ -165,43 +369,107 @@ public class PluginManagerService {
     public void undeployPlugin(String pluginId) throws PluginException {
         logger.info("Undeploying plugin: {}", pluginId);
         
-        // Unregister from registry
-        pluginRegistry.unregisterPlugin(pluginId);
+        // Unregister from registry, then let calls already running on the plugin finish
+        PluginInstance removed = pluginRegistry.unregisterPlugin(pluginId);
+        awaitDrain(removed);
         
         // Unload from plugin loader
         pluginLoader.unloadPlugin(pluginId);
         
         // Update database status
         pluginConfigMapper.updateStatus(pluginId, false, "UNLOADED");
+        pluginConfigCache.evict(pluginId);
         
         // Remove from tracking
-        jarFileModifiedTimes.remove(pluginId);
+        jarFingerprints.remove(pluginId);
+        forgetDeferred(pluginId);
         
         logger.info("Successfully undeployed plugin: {}", pluginId);
     }
     
     /**
-     * Reload plugin
+     * Reload plugin without downtime: the new version is loaded and initialized next to the old one,
+     * the dispatch table switches to it in one step, and the old version is destroyed once its
+     * in-flight calls have finished. If the new version fails to start, the old one keeps serving.
      */
     public void reloadPlugin(String pluginId) throws PluginException {
-        logger.info("Reloading plugin: {}", pluginId);
-        
         PluginConfigModel config = pluginConfigMapper.findByPluginId(pluginId);
         if (config == null) {
             throw new PluginException(pluginId, "CONFIG_NOT_FOUND", "Plugin configuration not found");
         }
         
-        // Undeploy first
-        if (pluginRegistry.getPlugin(pluginId) != null) {
-            undeployPlugin(pluginId);
+        reloadPlugin(config);
+    }
+    
+    private void reloadPlugin(PluginConfigModel config) throws PluginException {
+        String pluginId = config.getPluginId();
+        logger.info("Reloading plugin: {}", pluginId);
+        
+        if (pluginRegistry.getPlugin(pluginId) == null) {
+            loadPluginFromConfig(config);
+            logger.info("Successfully reloaded plugin: {}", pluginId);
+            return;
         }
         
-        // Load again
-        loadPluginFromConfig(config);
+        File jarFile = getJarFile(config);
+        EsbPlugin newPlugin = pluginLoader.loadPluginInstance(pluginId, jarFile, config.getMainClass());
+        try {
+            newPlugin.initialize(createPluginConfiguration(config));
+        } catch (PluginException | RuntimeException e) {
+            logger.error("New version of plugin {} failed to initialize, keeping the current version", pluginId, e);
+            pluginLoader.destroyPluginInstance(pluginId, newPlugin);
+            throw e;
+        }
+        
+        // Switch dispatch to the new version
+        pluginLoader.activatePlugin(pluginId, newPlugin);
+        PluginInstance replaced = pluginRegistry.registerPlugin(pluginId, newPlugin);
+        
+        pluginConfigMapper.updateLoadedTime(pluginId, LocalDateTime.now());
+        pluginConfigMapper.updateStatus(pluginId, true, "LOADED");
+        pluginConfigCache.evict(pluginId);
+        trackJar(pluginId, jarFile);
+        
+        retireWhenDrained(replaced);
         
         logger.info("Successfully reloaded plugin: {}", pluginId);
     }
     
+    /**
+     * Destroy a replaced plugin version in the background once its in-flight calls finish
+     */
+    private void retireWhenDrained(PluginInstance replaced) {
+        if (replaced == null) {
+            return;
+        }
+        retirementExecutor.execute(() -> {
+            try {
+                awaitDrain(replaced);
+                pluginLoader.destroyPluginInstance(replaced.getPluginId(), replaced.getPlugin());
+                logger.info("Destroyed previous version of plugin: {}", replaced.getPluginId());
+            } catch (Exception e) {
+                logger.error("Error destroying previous version of plugin: {}", replaced.getPluginId(), e);
+            }
+        });
+    }
+    
+    /**
+     * Wait for calls running on a retired plugin instance, up to the drain timeout
+     */
+    private void awaitDrain(PluginInstance retired) {
+        if (retired == null) {
+            return;
+        }
+        try {
+            if (!retired.awaitDrain(drainTimeout)) {
+                logger.warn("Plugin {} still has {} calls in flight after {}ms, destroying anyway", 
+                           retired.getPluginId(), retired.getInFlight(), drainTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
     /**
      * Enable/disable plugin
      */
@@ -223,44 +491,82 @@ public class PluginManagerService {
         
         // Update database
         pluginConfigMapper.updateStatus(pluginId, enabled, enabled ? "LOADED" : "DISABLED");
+        pluginConfigCache.evict(pluginId);
         
         logger.info("Successfully toggled plugin: {} to {}", pluginId, enabled ? "enabled" : "disabled");
     }
     
+    /**
+     * Get plugin configuration from the cache, loading it on first use
+     * @return Plugin configuration, or null if not found
+     */
+    public PluginConfigModel getPluginConfig(String pluginId) {
+        return pluginConfigCache.get(pluginId, PluginConfigModel.class);
+    }
+    
     /**
      * Get plugin for processing request
      */
     public EsbPlugin getPluginForEndpoint(String endpoint) {
-        String pluginId = pluginRegistry.getBestPluginForEndpoint(endpoint);
-        if (pluginId != null) {
-            return pluginRegistry.getPlugin(pluginId);
+        EsbPlugin plugin = pluginRegistry.getPluginForEndpoint(endpoint);
+        if (plugin == null && !lazyEndpoints.isEmpty()) {
+            String pluginId = lazyEndpoints.get(endpoint);
+            if (pluginId != null && loadLazily(pluginId) != null) {
+                plugin = pluginRegistry.getPluginForEndpoint(endpoint);
+            }
         }
-        return null;
+        return plugin;
+    }
+    
+    /**
+     * Check plugin health from the last probe result
+     */
+    public boolean isPluginHealthy(String pluginId) {
+        return pluginRegistry.isPluginHealthy(pluginId);
+    }
+    
+    /**
+     * Check health of the plugin serving an endpoint from the last probe result
+     */
+    public boolean isEndpointPluginHealthy(String endpoint) {
+        return pluginRegistry.isPluginHealthy(pluginRegistry.getBestPluginForEndpoint(endpoint));
     }
     
     /**
      * Get all plugin information
      */
     public List<Map<String, Object>> getAllPluginInfo() {
-        return pluginRegistry.getDetailedPluginInfo();
+        List<Map<String, Object>> pluginInfo = pluginRegistry.getDetailedPluginInfo();
+        Map<String, Map<String, Object>> classLoaderStats = pluginLoader.getClassLoaderStats();
+        
+        for (Map<String, Object> info : pluginInfo) {
+            Map<String, Object> stats = classLoaderStats.get(info.get("pluginId"));
+            if (stats != null) {
+                info.put("classLoader", stats);
+            }
+        }
+        return pluginInfo;
     }
     
     /**
      * Get plugin registry statistics
      */
     public Map<String, Object> getPluginStats() {
-        return pluginRegistry.getRegistryStats();
+        Map<String, Object> stats = pluginRegistry.getRegistryStats();
+        stats.put("deferredPlugins", lazyPlugins.size());
+        return stats;
     }
     
     /**
-     * Perform health check on all plugins
+     * Get health of all plugins from the last probe results
      */
     public Map<String, Boolean> performHealthCheck() {
         return pluginRegistry.performHealthCheck();
     }
     
     /**
-     * Scheduled method to check for plugin updates
+     * Scheduled fallback for plugin updates the directory watcher missed, e.g. on network file systems.
+     * Only JARs whose size or modification time changed are hashed, and the database is only queried for real changes.
      */
     @Scheduled(fixedDelayString = "${esb.plugin.reload.interval:300000}")
     public void checkForPluginUpdates() {
@@ -270,28 +576,113 @@ public class PluginManagerService {
         
         logger.debug("Checking for plugin updates");
         
-        for (String pluginId : new ArrayList<>(jarFileModifiedTimes.keySet())) {
+        Set<String> jarFileNames = new HashSet<>();
+        for (JarFingerprint fingerprint : jarFingerprints.values()) {
+            File jarFile = new File(new File(pluginDirectory), fingerprint.getFileName());
+            // Skip files written within the quiet period, a copy may still be in progress
+            if (System.currentTimeMillis() - jarFile.lastModified() >= quietPeriod) {
+                jarFileNames.add(fingerprint.getFileName());
+            }
+        }
+        reloadChangedJars(jarFileNames);
+    }
+    
+    /**
+     * Reload plugins whose JAR content changed. A JAR that was only touched or copied over with
+     * identical content is not reloaded. Configs of changed plugins are fetched in one query.
+     * @param jarFileNames Names of JAR files in the plugin directory that may have changed
+     */
+    public synchronized void reloadChangedJars(Collection<String> jarFileNames) {
+        if (jarFileNames.isEmpty()) {
+            return;
+        }
+        
+        Map<String, JarFingerprint> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, JarFingerprint> entry : jarFingerprints.entrySet()) {
+            JarFingerprint tracked = entry.getValue();
+            if (!jarFileNames.contains(tracked.getFileName())) {
+                continue;
+            }
+            
+            File jarFile = new File(new File(pluginDirectory), tracked.getFileName());
+            if (!jarFile.exists() || !pluginLoader.validateJarFile(jarFile)) {
+                logger.warn("Skipping changed JAR that is missing or not a complete JAR file: {}", jarFile.getName());
+                continue;
+            }
+            
             try {
-                PluginConfigModel config = pluginConfigMapper.findByPluginId(pluginId);
-                if (config != null && config.isEnabled()) {
-                    File jarFile = new File(new File(pluginDirectory), config.getJarFileName());
-                    
-                    if (jarFile.exists()) {
-                        long lastModified = jarFile.lastModified();
-                        Long trackedTime = jarFileModifiedTimes.get(pluginId);
-                        
-                        if (trackedTime != null && lastModified > trackedTime) {
-                            logger.info("Detected update for plugin: {}, reloading", pluginId);
-                            reloadPlugin(pluginId);
-                        }
-                    }
+                JarFingerprint current = JarFingerprint.of(jarFile, tracked);
+                if (current.contentDiffers(tracked)) {
+                    changed.put(entry.getKey(), current);
+                } else if (current != tracked) {
+                    logger.debug("JAR {} was rewritten with unchanged content, not reloading", jarFile.getName());
+                    jarFingerprints.put(entry.getKey(), current);
                 }
+            } catch (IOException e) {
+                logger.warn("Failed to read JAR file: {}", jarFile.getName(), e);
+            }
+        }
+        
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        Set<String> changedFileNames = new HashSet<>();
+        changed.values().forEach(fingerprint -> changedFileNames.add(fingerprint.getFileName()));
+        Map<String, PluginConfigModel> configs = new HashMap<>();
+        for (PluginConfigModel config : pluginConfigMapper.findByJarFileNames(changedFileNames)) {
+            configs.put(config.getPluginId(), config);
+        }
+        
+        for (Map.Entry<String, JarFingerprint> entry : changed.entrySet()) {
+            String pluginId = entry.getKey();
+            PluginConfigModel config = configs.get(pluginId);
+            if (config == null || !config.isEnabled() || !entry.getValue().getFileName().equals(config.getJarFileName())) {
+                continue;
+            }
+            
+            try {
+                logger.info("Detected content change for plugin: {} ({}), reloading", pluginId, entry.getValue());
+                reloadPlugin(config);
             } catch (Exception e) {
-                logger.error("Error checking update for plugin: {}", pluginId, e);
+                logger.error("Error reloading updated plugin: {}", pluginId, e);
             }
         }
     }
     
+    /**
+     * Get the plugin directory watched for JAR updates
+     */
+    public File getPluginDirectory() {
+        return new File(pluginDirectory);
+    }
+    
+    public boolean isReloadEnabled() {
+        return reloadEnabled;
+    }
+    
+    private void trackJar(String pluginId, File jarFile) {
+        try {
+            jarFingerprints.put(pluginId, JarFingerprint.of(jarFile, null));
+        } catch (IOException e) {
+            logger.warn("Failed to fingerprint JAR for plugin: {}", pluginId, e);
+            jarFingerprints.remove(pluginId);
+        }
+    }
+    
+    /**
+     * Resolve the JAR file of a plugin in the plugin directory
+     */
+    private File getJarFile(PluginConfigModel config) throws PluginException {
+        File jarFile = new File(new File(pluginDirectory), config.getJarFileName());
+        
+        if (!jarFile.exists()) {
+            throw new PluginException(config.getPluginId(), "JAR_NOT_FOUND", 
+                "JAR file not found: " + jarFile.getAbsolutePath());
+        }
+        return jarFile;
+    }
+    
     /**
      * Create plugin configuration from database config
      */
@@ -318,9 +709,13 @@ public class PluginManagerService {
         logger.info("Shutting down plugin manager");
         
         try {
+            retirementExecutor.shutdown();
+            retirementExecutor.awaitTermination(drainTimeout, TimeUnit.MILLISECONDS);
+            lazyPlugins.clear();
+            lazyEndpoints.clear();
             pluginLoader.shutdown();
             pluginRegistry.clear();
-            jarFileModifiedTimes.clear();
+            jarFingerprints.clear();
             
             logger.info("Plugin manager shutdown completed");
         } catch (Exception e) {
@@ -328,8 +723,20 @@ public class PluginManagerService {
         }
     }
 
-	public EsbPlugin getPlugin(String targetPluginId) {
-		// TODO Auto-generated method stub
-		return null;
-	}
+    private static CustomizableThreadFactory daemonThreadFactory(String threadNamePrefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+    
+    /**
+     * Get plugin by ID for processing request
+     */
+    public EsbPlugin getPlugin(String pluginId) {
+        EsbPlugin plugin = pluginRegistry.getPlugin(pluginId);
+        if (plugin == null && !lazyPlugins.isEmpty()) {
+            plugin = loadLazily(pluginId);
+        }
+        return plugin;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.RouteConfig;
+import com.esb.plugin.PluginRequest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Headers and parameters a route or service config contributes to every plugin request,
+ * compiled once into read-only maps. Requests are created as overlays on these maps,
+ * so only per-request values are allocated. Pinned keys come from config and are not
+ * overridden by per-request values, matching the order the values used to be applied in.
+ */
+final class PluginRequestTemplate {
+
+    private final Map<String, Object> headers;
+    private final Map<String, Object> parameters;
+    private final Set<String> pinnedHeaders;
+    private final Set<String> pinnedParameters;
+
+    private PluginRequestTemplate(Map<String, Object> headers, Map<String, Object> parameters,
+                                  Set<String> pinnedHeaders, Set<String> pinnedParameters) {
+        this.headers = headers;
+        this.parameters = parameters;
+        this.pinnedHeaders = pinnedHeaders;
+        this.pinnedParameters = pinnedParameters;
+    }
+
+    /**
+     * Compile a route config, every configured value wins over request values
+     */
+    static PluginRequestTemplate forRoute(RouteConfig routeConfig) {
+        Map<String, Object> parameters = new HashMap<>();
+        if (routeConfig.getTargetUrl() != null) {
+            parameters.put("targetUrl", routeConfig.getTargetUrl());
+        }
+        if (routeConfig.getTimeout() > 0) {
+            parameters.put("timeout", String.valueOf(routeConfig.getTimeout()));
+        }
+        if (routeConfig.getRetryCount() > 0) {
+            parameters.put("retryCount", String.valueOf(routeConfig.getRetryCount()));
+        }
+        if (routeConfig.getParameters() != null) {
+            parameters.putAll(routeConfig.getParameters());
+        }
+        Map<String, Object> headers = copyOf(routeConfig.getHeaders());
+
+        Map<String, Object> frozenParameters = Collections.unmodifiableMap(parameters);
+        return new PluginRequestTemplate(headers, frozenParameters, headers.keySet(), frozenParameters.keySet());
+    }
+
+    /**
+     * Compile a service config, only configured headers and parameters win over request values
+     */
+    static PluginRequestTemplate forService(BranchServiceConfig serviceConfig) {
+        Map<String, Object> parameters = new HashMap<>();
+        if (serviceConfig.getTargetUrl() != null) {
+            parameters.put("targetUrl", serviceConfig.getTargetUrl());
+        }
+        if (serviceConfig.getServiceEndpoint() != null) {
+            parameters.put("serviceEndpoint", serviceConfig.getServiceEndpoint());
+        }
+        if (serviceConfig.getEsbService() != null) {
+            parameters.put("esbService", serviceConfig.getEsbService());
+        }
+        parameters.put("timeout", String.valueOf(serviceConfig.getTimeoutMs()));
+        parameters.put("retryCount", String.valueOf(serviceConfig.getRetryCount()));
+
+        Map<String, Object> configured = copyOf(serviceConfig.getParameters());
+        parameters.putAll(configured);
+        Map<String, Object> headers = copyOf(serviceConfig.getHeaders());
+
+        return new PluginRequestTemplate(headers, Collections.unmodifiableMap(parameters),
+                                         headers.keySet(), configured.keySet());
+    }
+
+    /**
+     * Create a plugin request over this template
+     */
+    PluginRequest newRequest(String requestId, String branchCode, String endpoint) {
+        return PluginRequest.withDefaults(requestId, branchCode, endpoint, headers, parameters);
+    }
+
+    /**
+     * Add a per-request parameter unless config pins its key
+     */
+    void addParameter(PluginRequest request, String key, Object value) {
+        if (!pinnedParameters.contains(key)) {
+            request.addParameter(key, value);
+        }
+    }
+
+    /**
+     * Add per-request headers whose keys config does not pin
+     */
+    void addHeaders(PluginRequest request, Map<String, Object> values) {
+        if (values != null) {
+            values.forEach((key, value) -> {
+                if (!pinnedHeaders.contains(key)) {
+                    request.addHeader(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Add per-request parameters whose keys config does not pin
+     */
+    void addParameters(PluginRequest request, Map<String, Object> values) {
+        if (values != null) {
+            values.forEach((key, value) -> addParameter(request, key, value));
+        }
+    }
+
+    private static Map<String, Object> copyOf(Map<String, String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<>(values));
+    }
+}
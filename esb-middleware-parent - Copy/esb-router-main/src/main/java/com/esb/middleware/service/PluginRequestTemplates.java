@@ -0,0 +1,42 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.RouteConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Compiled plugin request templates per route and service config.
+ * Keyed weakly by config instance: a config replaced in the routing table gets a new template
+ * on first use and the old one is collected with it, so no invalidation is needed.
+ */
+@Component
+public class PluginRequestTemplates {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Cache<Object, PluginRequestTemplate> templates = Caffeine.newBuilder()
+        .weakKeys()
+        .recordStats()
+        .build();
+
+    @PostConstruct
+    public void registerMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, templates, "pluginRequestTemplates");
+    }
+
+    PluginRequestTemplate forRoute(RouteConfig routeConfig) {
+        return templates.get(routeConfig, config -> PluginRequestTemplate.forRoute(routeConfig));
+    }
+
+    PluginRequestTemplate forService(BranchServiceConfig serviceConfig) {
+        return templates.get(serviceConfig, config -> PluginRequestTemplate.forService(serviceConfig));
+    }
+}
@@ -0,0 +1,26 @@
+package com.esb.middleware.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Readiness check for plugin startup, reported as "pluginStartup".
+ * Out of service until the critical plugins are loaded, so the pod only receives traffic it can serve.
+ */
+@Component
+public class PluginStartupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private PluginManagerService pluginManagerService;
+
+    @Override
+    public Health health() {
+        Map<String, Object> status = pluginManagerService.getStartupStatus();
+        Health.Builder builder = Boolean.TRUE.equals(status.get("ready")) ? Health.up() : Health.outOfService();
+        return builder.withDetails(status).build();
+    }
+}
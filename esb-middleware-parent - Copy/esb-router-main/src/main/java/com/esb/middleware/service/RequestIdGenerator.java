@@ -0,0 +1,14 @@
+package com.esb.middleware.service;
+
+/**
+ * Generates request IDs for ESB transactions.
+ * Register another implementation as @Primary to replace the default time-ordered generator.
+ */
+public interface RequestIdGenerator {
+
+    /**
+     * Generate the next request ID
+     * @return Unique request ID
+     */
+    String nextId();
+}
@@ -0,0 +1,360 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.EsbRequest;
+import com.esb.middleware.model.EsbRequestModel;
+import com.esb.middleware.model.EsbResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of successful responses for idempotent services.
+ * A service is cached when its branch_service_config row sets cache_ttl_ms above 0 and names the request
+ * fields forming the key in cache_key_fields. Response data is stored as serialized JSON and written back
+ * raw on a hit, so entries are never shared as mutable objects and their memory use is known.
+ * The cache is bounded by esb.cache.response.max-weight bytes and records statistics under "responseCache".
+ * Keys include the config row version, so a changed row never serves an older response.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    // Rough per-entry cost of key, entry object and maps on top of the JSON text
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    // Payload root of an ingress envelope, plain key field names are resolved inside it
+    private static final String ENVELOPE_BODY = "esbBody";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${esb.cache.response.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${esb.cache.response.max-weight:67108864}")
+    private long maxWeight;
+
+    @Value("${esb.cache.response.max-entry-size:65536}")
+    private int maxEntrySize;
+
+    private Cache<Key, CachedResponse> responses;
+
+    @PostConstruct
+    public void initialize() {
+        responses = Caffeine.newBuilder()
+            .maximumWeight(maxWeight)
+            .weigher((Key key, CachedResponse response) -> key.weight() + response.weight)
+            .expireAfter(new Expiry<Key, CachedResponse>() {
+                @Override
+                public long expireAfterCreate(Key key, CachedResponse response, long currentTime) {
+                    return response.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(Key key, CachedResponse response, long currentTime, long currentDuration) {
+                    return response.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterRead(Key key, CachedResponse response, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "responseCache");
+    }
+
+    /**
+     * Build the cache key for a request
+     * @return Key, or null if the service is not cached or the request lacks one of the key fields
+     */
+    public Key keyFor(BranchServiceConfig serviceConfig, String pluginId, String serviceEndpoint, String esbService,
+                      EsbRequestModel request) {
+        return keyFor(serviceConfig, pluginId, serviceEndpoint, esbService, request.getRawBody(), request);
+    }
+
+    /**
+     * Build the cache key for a request of the envelope router, key fields are read from its body or payload
+     * @return Key, or null if the service is not cached or the request lacks one of the key fields
+     */
+    public Key keyFor(BranchServiceConfig serviceConfig, String pluginId, String serviceEndpoint, EsbRequest request) {
+        return keyFor(serviceConfig, pluginId, serviceEndpoint, null, request.getRawBody(), request.getPayload());
+    }
+
+    public boolean isEnabled() {
+        return cacheEnabled;
+    }
+
+    private Key keyFor(BranchServiceConfig serviceConfig, String pluginId, String serviceEndpoint, String esbService,
+                       byte[] rawBody, Object body) {
+        if (!cacheEnabled || serviceConfig.getCacheTtlMs() <= 0 || serviceConfig.getCacheKeyFields() == null
+                || serviceConfig.getCacheKeyFields().trim().isEmpty()) {
+            return null;
+        }
+
+        List<String> values;
+        try (JsonParser parser = rawBody != null ? objectMapper.createParser(rawBody)
+                : objectMapper.treeAsTokens(objectMapper.valueToTree(body))) {
+            values = readKeyValues(parser, serviceConfig.getCacheKeyFields().split(","));
+        } catch (Exception e) {
+            logger.debug("Request body not readable for cache key, bypassing cache: {}", e.getMessage());
+            return null;
+        }
+        if (values == null) {
+            return null;
+        }
+
+        return new Key(serviceConfig.getId(), serviceConfig.getModifiedDate(), pluginId, serviceEndpoint, esbService, values);
+    }
+
+    /**
+     * Get a copy of the cached response for the key
+     * @return Response for this request ID, or null on a miss
+     */
+    public EsbResponse get(Key key, String requestId) {
+        CachedResponse cached = responses.getIfPresent(key);
+        return cached != null ? cached.toResponse(requestId) : null;
+    }
+
+    /**
+     * Cache a successful response under the key, for the service's TTL
+     */
+    public void put(Key key, BranchServiceConfig serviceConfig, EsbResponse response) {
+        if (!"SUCCESS".equals(response.getStatus())) {
+            return;
+        }
+        try {
+            String data = response.getData() != null ? objectMapper.writeValueAsString(response.getData()) : null;
+            if (data != null && data.length() > maxEntrySize) {
+                return;
+            }
+            responses.put(key, new CachedResponse(response, data,
+                TimeUnit.MILLISECONDS.toNanos(serviceConfig.getCacheTtlMs())));
+        } catch (Exception e) {
+            logger.debug("Response not cacheable for requestId {}: {}", response.getRequestId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Drop cached responses of changed or removed service configs
+     */
+    public void invalidateServices(Collection<Long> serviceConfigIds) {
+        if (serviceConfigIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(serviceConfigIds);
+        responses.asMap().keySet().removeIf(key -> ids.contains(key.serviceConfigId));
+    }
+
+    public void invalidateAll() {
+        responses.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", responses.estimatedSize());
+        stats.put("hitRate", responses.stats().hitRate());
+        stats.put("hits", responses.stats().hitCount());
+        stats.put("misses", responses.stats().missCount());
+        stats.put("evictions", responses.stats().evictionCount());
+        responses.policy().eviction().ifPresent(eviction ->
+            eviction.weightedSize().ifPresent(weight -> stats.put("weightBytes", weight)));
+        return stats;
+    }
+
+    /**
+     * Read the key field values in one streaming pass over the body, skipping everything else.
+     * A plain name is a field of the payload root, which is esbBody for an envelope and the body otherwise;
+     * a dotted path is resolved from the top of the body.
+     * @return Values in field order, or null if a field is missing or null
+     */
+    private List<String> readKeyValues(JsonParser parser, String[] fields) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        Set<String> wanted = new HashSet<>();
+        for (String field : fields) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                return null;
+            }
+            wanted.add(path);
+            if (path.indexOf('.') < 0) {
+                wanted.add(ENVELOPE_BODY + "." + path);
+            }
+        }
+        Set<String> parents = new HashSet<>();
+        for (String path : wanted) {
+            for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+                parents.add(path.substring(0, dot));
+            }
+        }
+
+        Map<String, String> found = new HashMap<>();
+        boolean envelope = readFields(parser, "", wanted, parents, found);
+
+        List<String> values = new ArrayList<>();
+        for (String field : fields) {
+            String path = field.trim();
+            String value = found.get(envelope && path.indexOf('.') < 0 ? ENVELOPE_BODY + "." + path : path);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Collect wanted paths of the object the parser is in, descending only into objects on a wanted path
+     * @return true if this is the top level and it has an esbBody object
+     */
+    private boolean readFields(JsonParser parser, String prefix, Set<String> wanted, Set<String> parents,
+                               Map<String, String> found) throws IOException {
+        boolean envelope = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (prefix.isEmpty() && ENVELOPE_BODY.equals(path) && token == JsonToken.START_OBJECT) {
+                envelope = true;
+            }
+
+            if (wanted.contains(path)) {
+                if (token.isScalarValue()) {
+                    if (token != JsonToken.VALUE_NULL) {
+                        found.put(path, parser.getText());
+                    }
+                } else {
+                    found.put(path, parser.readValueAsTree().toString());
+                }
+            } else if (token == JsonToken.START_OBJECT && parents.contains(path)) {
+                readFields(parser, path + ".", wanted, parents, found);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Service config row and version, plugin, route and key field values of a request
+     */
+    public static final class Key {
+        private final Long serviceConfigId;
+        private final LocalDateTime configVersion;
+        private final String pluginId;
+        private final String serviceEndpoint;
+        private final String esbService;
+        private final List<String> values;
+        private final int hash;
+
+        Key(Long serviceConfigId, LocalDateTime configVersion, String pluginId, String serviceEndpoint,
+            String esbService, List<String> values) {
+            this.serviceConfigId = serviceConfigId;
+            this.configVersion = configVersion;
+            this.pluginId = pluginId;
+            this.serviceEndpoint = serviceEndpoint;
+            this.esbService = esbService;
+            this.values = values;
+            this.hash = Objects.hash(serviceConfigId, configVersion, pluginId, serviceEndpoint, esbService, values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                && Objects.equals(serviceConfigId, other.serviceConfigId)
+                && Objects.equals(configVersion, other.configVersion)
+                && Objects.equals(pluginId, other.pluginId)
+                && Objects.equals(serviceEndpoint, other.serviceEndpoint)
+                && Objects.equals(esbService, other.esbService)
+                && values.equals(other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        int weight() {
+            int weight = 0;
+            for (String value : values) {
+                weight += value.length() * 2;
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * Immutable response fields, with data kept as JSON text
+     */
+    private static final class CachedResponse {
+        private final String status;
+        private final String statusCode;
+        private final String message;
+        private final String data;
+        private final Map<String, Object> headers;
+        private final Map<String, Object> metadata;
+        private final long ttlNanos;
+        private final int weight;
+
+        CachedResponse(EsbResponse response, String data, long ttlNanos) {
+            this.status = response.getStatus();
+            this.statusCode = response.getStatusCode();
+            this.message = response.getMessage();
+            this.data = data;
+            this.headers = response.getHeaders() != null ? new HashMap<>(response.getHeaders()) : null;
+            this.metadata = response.getMetadata() != null ? new HashMap<>(response.getMetadata()) : null;
+            this.ttlNanos = ttlNanos;
+            this.weight = ENTRY_OVERHEAD_BYTES + (data != null ? data.length() * 2 : 0);
+        }
+
+        EsbResponse toResponse(String requestId) {
+            EsbResponse response = new EsbResponse(requestId);
+            response.setStatus(status);
+            response.setStatusCode(statusCode);
+            response.setMessage(message);
+            response.setData(data != null ? new RawValue(data) : null);
+            response.setHeaders(headers != null ? new HashMap<>(headers) : new HashMap<>());
+            response.setMetadata(metadata != null ? new HashMap<>(metadata) : new HashMap<>());
+            return response;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.esb.middleware.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable two-level lookup of branch code -> key -> config.
+ * Built once from the enabled rows and published as a whole, so lookups need no locking
+ * and no per-request key concatenation. Changes produce a new table that shares
+ * every branch they do not touch.
+ */
+final class RoutingTable<V> {
+
+    private final Map<String, Map<String, V>> byBranch;
+    private final Map<Long, V> byId;
+
+    private final Function<V, Long> idOf;
+    private final Function<V, String> branchOf;
+    private final Function<V, String> keyOf;
+
+    private RoutingTable(Map<String, Map<String, V>> byBranch, Map<Long, V> byId,
+                         Function<V, Long> idOf, Function<V, String> branchOf, Function<V, String> keyOf) {
+        this.byBranch = byBranch;
+        this.byId = byId;
+        this.idOf = idOf;
+        this.branchOf = branchOf;
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Compile a table from config rows
+     */
+    static <V> RoutingTable<V> of(Collection<V> rows, Function<V, Long> idOf,
+                                  Function<V, String> branchOf, Function<V, String> keyOf) {
+        RoutingTable<V> empty = new RoutingTable<>(Collections.emptyMap(), Collections.emptyMap(),
+                                                   idOf, branchOf, keyOf);
+        return rows.isEmpty() ? empty : empty.withChanges(rows, Collections.emptyList());
+    }
+
+    /**
+     * Look up config for branch and key
+     * @return Config, or null if not present
+     */
+    V get(String branchCode, String key) {
+        Map<String, V> entries = byBranch.get(branchCode);
+        return entries != null ? entries.get(key) : null;
+    }
+
+    /**
+     * Look up config by row ID
+     * @return Config, or null if not present
+     */
+    V getById(Long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Copy of this table with one row added or replaced
+     */
+    RoutingTable<V> with(V row) {
+        return withChanges(Collections.singletonList(row), Collections.emptyList());
+    }
+
+    /**
+     * Copy of this table with rows added or replaced and row IDs removed.
+     * A row whose branch or key changed is moved, since its old location is found by ID.
+     */
+    RoutingTable<V> withChanges(Collection<V> upserts, Collection<Long> removedIds) {
+        if (upserts.isEmpty() && removedIds.isEmpty()) {
+            return this;
+        }
+
+        Map<String, Map<String, V>> branches = new HashMap<>(byBranch);
+        Map<Long, V> ids = new HashMap<>(byId);
+        Set<String> touched = new HashSet<>();
+
+        for (Long id : removedIds) {
+            remove(branches, ids, touched, id);
+        }
+        for (V row : upserts) {
+            Long id = idOf.apply(row);
+            remove(branches, ids, touched, id);
+
+            V displaced = editable(branches, touched, branchOf.apply(row)).put(keyOf.apply(row), row);
+            if (displaced != null) {
+                ids.remove(idOf.apply(displaced));
+            }
+            ids.put(id, row);
+        }
+
+        for (String branch : touched) {
+            Map<String, V> entries = branches.get(branch);
+            if (entries.isEmpty()) {
+                branches.remove(branch);
+            } else {
+                branches.put(branch, Collections.unmodifiableMap(entries));
+            }
+        }
+        return new RoutingTable<>(Collections.unmodifiableMap(branches), Collections.unmodifiableMap(ids),
+                                  idOf, branchOf, keyOf);
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    Set<Long> ids() {
+        return byId.keySet();
+    }
+
+    /**
+     * Flatten to branch_key entries, for diagnostics only
+     */
+    Map<String, V> toFlatMap() {
+        Map<String, V> flat = new HashMap<>(byId.size());
+        byBranch.forEach((branch, entries) ->
+            entries.forEach((key, value) -> flat.put(branch + "_" + key, value)));
+        return flat;
+    }
+
+    private void remove(Map<String, Map<String, V>> branches, Map<Long, V> ids, Set<String> touched, Long id) {
+        V existing = ids.remove(id);
+        if (existing != null) {
+            editable(branches, touched, branchOf.apply(existing)).remove(keyOf.apply(existing), existing);
+        }
+    }
+
+    /**
+     * Private copy of a branch map, made once per change set
+     */
+    private Map<String, V> editable(Map<String, Map<String, V>> branches, Set<String> touched, String branch) {
+        if (touched.add(branch)) {
+            Map<String, V> entries = branches.get(branch);
+            branches.put(branch, entries != null ? new HashMap<>(entries) : new HashMap<>());
+        }
+        return branches.get(branch);
+    }
+}
@@ -0,0 +1,88 @@
+package com.esb.middleware.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered request ID generator.
+ * IDs look like EPIXESB-{millis:12 hex}-{node:4 hex}-{sequence:12 hex}, so they sort by creation time
+ * and audit_log inserts append to the end of the request_id index.
+ * The sequence is one shared counter taken with a single atomic increment, so it costs the same on
+ * pooled, short-lived and virtual threads; the node ID keeps IDs unique across the cluster.
+ */
+@Component
+public class TimeOrderedRequestIdGenerator implements RequestIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeOrderedRequestIdGenerator.class);
+
+    private static final String PREFIX = "EPIXESB-";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final long SEQUENCE_MASK = (1L << 48) - 1;
+    private static final int MAX_NODE_ID = 0xFFFF;
+
+    @Value("${esb.request-id.node-id:-1}")
+    private int configuredNodeId;
+
+    private int nodeId;
+
+    // Random start so a restarted node does not reuse the sequence numbers of its previous run
+    private final AtomicLong sequence = new AtomicLong(ThreadLocalRandom.current().nextInt() & 0xFFFFFFFFL);
+
+    @PostConstruct
+    public void initialize() {
+        if (configuredNodeId >= 0 && configuredNodeId <= MAX_NODE_ID) {
+            nodeId = configuredNodeId;
+        } else {
+            nodeId = deriveNodeId();
+            logger.warn("esb.request-id.node-id not set (0-{}), derived node ID {} from host and process; " +
+                       "set it explicitly on every cluster node to guarantee unique request IDs", MAX_NODE_ID, nodeId);
+        }
+        logger.info("Request ID generator initialized with node ID {}", nodeId);
+    }
+
+    @Override
+    public String nextId() {
+        char[] id = new char[PREFIX.length() + 12 + 1 + 4 + 1 + 12];
+        PREFIX.getChars(0, PREFIX.length(), id, 0);
+
+        int pos = PREFIX.length();
+        pos = appendHex(id, pos, System.currentTimeMillis(), 12);
+        id[pos++] = '-';
+        pos = appendHex(id, pos, nodeId, 4);
+        id[pos++] = '-';
+        appendHex(id, pos, sequence.getAndIncrement() & SEQUENCE_MASK, 12);
+
+        return new String(id);
+    }
+
+    private static int appendHex(char[] buffer, int pos, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    private static int deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        String runtime = ManagementFactory.getRuntimeMXBean().getName();
+        return (host + "/" + runtime).hashCode() & MAX_NODE_ID;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,103 @@
+package com.esb.middleware.handler;
+
+import com.esb.middleware.model.EsbEnvelope;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EsbEnvelopeParserTest {
+
+    private final EsbEnvelopeParser parser = new EsbEnvelopeParser(new ObjectMapper());
+
+    @Test
+    void parseReadsRoutingFields() throws IOException {
+        byte[] body = bytes("{\"esbHeader\":{\"branch\":\"BR01\",\"serviceId\":\"TRADE_QUERY\",\"sourceApplication\":\"WEB\"},"
+            + "\"esbBody\":{\"correlationId\":\"C-1\",\"tradeId\":42}}");
+
+        EsbEnvelope envelope = parser.parse(body);
+
+        assertEquals("BR01", envelope.getBranch());
+        assertEquals("TRADE_QUERY", envelope.getServiceId());
+        assertEquals("WEB", envelope.getSourceApplication());
+        assertEquals("C-1", envelope.getCorrelationId());
+        assertArrayEquals(body, envelope.getRawBody());
+    }
+
+    @Test
+    void parseSkipsFieldsAfterBothSections() throws IOException {
+        EsbEnvelope envelope = parser.parse(bytes("{\"esbBody\":{\"correlationId\":\"C-1\",\"items\":[1,2,3]},"
+            + "\"esbHeader\":{\"branch\":\"BR01\"},\"extra\":{\"nested\":[{\"a\":1}]}}"));
+
+        assertEquals("BR01", envelope.getBranch());
+        assertEquals("C-1", envelope.getCorrelationId());
+    }
+
+    @Test
+    void parseLeavesMissingFieldsNull() throws IOException {
+        EsbEnvelope envelope = parser.parse(bytes("{\"esbHeader\":{\"branch\":\"BR01\"}}"));
+
+        assertEquals("BR01", envelope.getBranch());
+        assertNull(envelope.getServiceId());
+        assertNull(envelope.getCorrelationId());
+    }
+
+    @Test
+    void parseRejectsNonObject() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse(bytes("[1,2]")));
+    }
+
+    @Test
+    void parseRejectsTrailingContent() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse(
+            bytes("{\"esbHeader\":{\"branch\":\"BR01\"},\"esbBody\":{\"correlationId\":\"C-1\"}} {\"x\":1}")));
+    }
+
+    @Test
+    void parseRejectsTruncatedBodyAfterSections() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse(
+            bytes("{\"esbHeader\":{\"branch\":\"BR01\"},\"esbBody\":{\"correlationId\":\"C-1\",\"tradeId\":")));
+    }
+
+    @Test
+    void parseRejectsMalformedFieldAfterSections() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse(
+            bytes("{\"esbHeader\":{\"branch\":\"BR01\"},\"esbBody\":{\"correlationId\":\"C-1\"},\"extra\":tru}")));
+    }
+
+    @Test
+    void readBatchKeepsEachElementBytes() throws IOException {
+        String first = "{\"esbHeader\":{\"branch\":\"BR01\"},\"esbBody\":{\"correlationId\":\"C-1\"},\"x\":1}";
+        String second = "{\"esbHeader\":{\"branch\":\"BR02\"}}";
+
+        List<EsbEnvelope> envelopes = parser.readBatch(bytes("[" + first + ", " + second + "]"));
+
+        assertEquals(2, envelopes.size());
+        assertEquals("BR01", envelopes.get(0).getBranch());
+        assertEquals("BR02", envelopes.get(1).getBranch());
+        assertArrayEquals(bytes(first), envelopes.get(0).getRawBody());
+        assertArrayEquals(bytes(second), envelopes.get(1).getRawBody());
+    }
+
+    @Test
+    void readBatchRejectsNonObjectElements() {
+        assertThrows(JsonProcessingException.class, () -> parser.readBatch(bytes("[{\"esbHeader\":{}}, 5]")));
+    }
+
+    @Test
+    void readBatchRejectsTrailingContent() {
+        assertThrows(JsonProcessingException.class, () -> parser.readBatch(bytes("[{\"esbHeader\":{}}] []")));
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
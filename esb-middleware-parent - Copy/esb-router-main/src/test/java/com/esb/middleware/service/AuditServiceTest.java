@@ -0,0 +1,92 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.mapper.AuditLogMapper;
+import com.esb.middleware.model.AuditLog;
+import com.esb.middleware.model.EsbRequest;
+import com.esb.middleware.model.EsbResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditServiceTest {
+
+    private final AuditLogMapper auditLogMapper = mock(AuditLogMapper.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicBoolean saturated = new AtomicBoolean();
+    private final AuditService auditService = new AuditService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditService, "auditLogMapper", auditLogMapper);
+        ReflectionTestUtils.setField(auditService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(auditService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(auditService, "auditExecutor", (Executor) task -> {
+            if (saturated.get()) {
+                throw new RejectedExecutionException("saturated");
+            }
+            task.run();
+        });
+        auditService.registerMetrics();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectedWritesAreSpilledAndFlushedAsOneRow() {
+        saturated.set(true);
+        auditService.logRequest("R-1", request(), "trade-plugin", "10.0.0.1");
+        saturated.set(false);
+        auditService.logResponse("R-1", EsbResponse.success("R-1", "ok"), 12);
+
+        verify(auditLogMapper, never()).insert(any());
+        verify(auditLogMapper, never()).updateResponse(anyString(), any(), any(), any(), any(), any(), anyLong(), any());
+
+        auditService.flushSpill();
+
+        ArgumentCaptor<List<AuditLog>> rows = ArgumentCaptor.forClass(List.class);
+        verify(auditLogMapper).insertBatch(rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertEquals("SUCCESS", rows.getValue().get(0).getStatus());
+        assertEquals(12, rows.getValue().get(0).getProcessingTime());
+        assertEquals(1.0, meterRegistry.counter("esb.audit.spilled").count());
+    }
+
+    @Test
+    void spilledResponseIsRetriedUntilItsRowExists() {
+        when(auditLogMapper.updateResponse(eq("R-1"), any(), any(), any(), any(), any(), anyLong(), any()))
+            .thenReturn(0, 1);
+        saturated.set(true);
+        auditService.logResponse("R-1", EsbResponse.success("R-1", "ok"), 12);
+
+        auditService.flushSpill();
+        auditService.flushSpill();
+        auditService.flushSpill();
+
+        verify(auditLogMapper, times(2)).updateResponse(eq("R-1"), any(), eq("SUCCESS"), any(), any(), any(),
+            eq(12L), any());
+        assertEquals(0.0, meterRegistry.counter("esb.audit.lost").count());
+    }
+
+    private static EsbRequest request() {
+        return new EsbRequest("BR01", "TRADE_QUERY");
+    }
+}
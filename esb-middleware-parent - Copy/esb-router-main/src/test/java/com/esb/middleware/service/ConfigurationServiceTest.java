@@ -0,0 +1,66 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.mapper.ConfigTombstoneMapper;
+import com.esb.middleware.mapper.RouteConfigMapper;
+import com.esb.middleware.model.RouteConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConfigurationServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RouteConfigMapper routeConfigMapper = mock(RouteConfigMapper.class);
+    private final ConfigTombstoneMapper configTombstoneMapper = mock(ConfigTombstoneMapper.class);
+    private final ConfigurationService configurationService = new ConfigurationService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(configurationService, "routeConfigMapper", routeConfigMapper);
+        ReflectionTestUtils.setField(configurationService, "configTombstoneMapper", configTombstoneMapper);
+        ReflectionTestUtils.setField(configurationService, "configChangeTransport", new InProcessConfigChangeTransport());
+        ReflectionTestUtils.setField(configurationService, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(configurationService, "syncOverlap", 5000L);
+        ReflectionTestUtils.setField(configurationService, "fullReconcileEvery", 3);
+
+        when(configTombstoneMapper.selectCurrentTime()).thenReturn(START);
+        when(routeConfigMapper.findAllEnabled()).thenReturn(Collections.singletonList(route(1L, "/trade")));
+        configurationService.initializeCache();
+    }
+
+    @Test
+    void fullReconcilePicksUpCommitsLaterThanTheOverlap() {
+        // Delta syncs see nothing, the rows committed after their modified_date had left the overlap window
+        when(routeConfigMapper.findModifiedSince(any())).thenReturn(Collections.emptyList());
+        when(configTombstoneMapper.findDeletedSince(any(), any())).thenReturn(Collections.emptyList());
+        when(routeConfigMapper.findAllEnabled()).thenReturn(Collections.singletonList(route(2L, "/quote")));
+
+        assertEquals(0, configurationService.syncChanges());
+        assertEquals(0, configurationService.syncChanges());
+        assertEquals(2, configurationService.syncChanges());
+
+        assertNull(configurationService.getRouteCacheSnapshot().get("BR01_/trade"));
+        assertEquals(2L, configurationService.getRouteCacheSnapshot().get("BR01_/quote").getId());
+    }
+
+    private static RouteConfig route(Long id, String endpoint) {
+        RouteConfig route = new RouteConfig();
+        route.setId(id);
+        route.setBranchCode("BR01");
+        route.setEndpoint(endpoint);
+        route.setEnabled(true);
+        route.setModifiedDate(START.minusMinutes(1));
+        return route;
+    }
+}
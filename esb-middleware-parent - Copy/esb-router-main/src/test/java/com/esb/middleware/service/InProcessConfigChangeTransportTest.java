@@ -0,0 +1,103 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.mapper.ConfigTombstoneMapper;
+import com.esb.middleware.mapper.RouteConfigMapper;
+import com.esb.middleware.model.ConfigTombstone;
+import com.esb.middleware.model.RouteConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InProcessConfigChangeTransportTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RouteConfigMapper routeConfigMapper = mock(RouteConfigMapper.class);
+    private final ConfigTombstoneMapper configTombstoneMapper = mock(ConfigTombstoneMapper.class);
+    private final BranchServiceConfigService branchServiceConfigService = mock(BranchServiceConfigService.class);
+
+    private final InProcessConfigChangeTransport transport = new InProcessConfigChangeTransport();
+    private final ConfigurationService configurationService = new ConfigurationService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(configurationService, "routeConfigMapper", routeConfigMapper);
+        ReflectionTestUtils.setField(configurationService, "configTombstoneMapper", configTombstoneMapper);
+        ReflectionTestUtils.setField(configurationService, "configChangeTransport", transport);
+        ReflectionTestUtils.setField(configurationService, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(configurationService, "syncOverlap", 5000L);
+
+        when(configTombstoneMapper.selectCurrentTime()).thenReturn(START);
+        when(routeConfigMapper.findAllEnabled()).thenReturn(Collections.emptyList());
+        configurationService.initializeCache();
+
+        ConfigInvalidationListener listener = new ConfigInvalidationListener();
+        ReflectionTestUtils.setField(listener, "configChangeTransport", transport);
+        ReflectionTestUtils.setField(listener, "configurationService", configurationService);
+        ReflectionTestUtils.setField(listener, "branchServiceConfigService", branchServiceConfigService);
+        listener.subscribe();
+    }
+
+    @Test
+    void publishAppliesRouteChangedOnAnotherNode() {
+        RouteConfig route = route(1L, "BR01", "/trade");
+        when(configTombstoneMapper.selectCurrentTime()).thenReturn(START.plusSeconds(10));
+        when(routeConfigMapper.findModifiedSince(START.minusSeconds(5))).thenReturn(Collections.singletonList(route));
+
+        transport.publish(ConfigTombstone.TYPE_ROUTE);
+
+        assertEquals(route, configurationService.getRouteCacheSnapshot().get("BR01_/trade"));
+        verify(branchServiceConfigService, never()).syncChanges();
+    }
+
+    @Test
+    void publishRemovesRouteDeletedOnAnotherNode() {
+        RouteConfig route = route(1L, "BR01", "/trade");
+        when(configTombstoneMapper.selectCurrentTime()).thenReturn(START.plusSeconds(10));
+        when(routeConfigMapper.findModifiedSince(any())).thenReturn(Collections.singletonList(route));
+        transport.publish(ConfigTombstone.TYPE_ROUTE);
+
+        ConfigTombstone tombstone = new ConfigTombstone();
+        tombstone.setConfigType(ConfigTombstone.TYPE_ROUTE);
+        tombstone.setConfigId(1L);
+        when(configTombstoneMapper.selectCurrentTime()).thenReturn(START.plusSeconds(20));
+        when(routeConfigMapper.findModifiedSince(any())).thenReturn(Collections.emptyList());
+        when(configTombstoneMapper.findDeletedSince(eq(ConfigTombstone.TYPE_ROUTE), eq(START.plusSeconds(5))))
+            .thenReturn(Collections.singletonList(tombstone));
+
+        transport.publish(ConfigTombstone.TYPE_ROUTE);
+
+        assertNull(configurationService.getRouteCacheSnapshot().get("BR01_/trade"));
+    }
+
+    @Test
+    void publishOfServiceChangeSyncsServiceConfig() {
+        transport.publish(ConfigTombstone.TYPE_SERVICE);
+
+        verify(branchServiceConfigService).syncChanges();
+        verify(routeConfigMapper, never()).findModifiedSince(any());
+    }
+
+    private static RouteConfig route(Long id, String branchCode, String endpoint) {
+        RouteConfig route = new RouteConfig();
+        route.setId(id);
+        route.setBranchCode(branchCode);
+        route.setEndpoint(endpoint);
+        route.setEnabled(true);
+        route.setModifiedDate(START.plusSeconds(1));
+        return route;
+    }
+}
@@ -0,0 +1,161 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.exception.PluginRejectedException;
+import com.esb.plugin.EsbPlugin;
+import com.esb.plugin.PluginException;
+import com.esb.plugin.PluginMetadata;
+import com.esb.plugin.PluginRequest;
+import com.esb.plugin.PluginResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PluginBatcherTest {
+
+    private static final String PLUGIN_ID = "trade-plugin";
+
+    private final PluginInvoker pluginInvoker = mock(PluginInvoker.class);
+    private final EsbPlugin plugin = mock(EsbPlugin.class);
+    private final AtomicInteger executed = new AtomicInteger();
+    private final PluginBatcher batcher = new PluginBatcher();
+
+    @BeforeEach
+    void setUp() {
+        PluginConcurrencyLimiter concurrencyLimiter = new PluginConcurrencyLimiter();
+        ReflectionTestUtils.setField(concurrencyLimiter, "maxPerPlugin", 20);
+
+        ReflectionTestUtils.setField(batcher, "pluginInvoker", pluginInvoker);
+        ReflectionTestUtils.setField(batcher, "pluginManagerService", mock(PluginManagerService.class));
+        ReflectionTestUtils.setField(batcher, "concurrencyLimiter", concurrencyLimiter);
+        ReflectionTestUtils.setField(batcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(batcher, "batchEnabled", true);
+        ReflectionTestUtils.setField(batcher, "batchWindow", 50L);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 100);
+        useExecutor(task -> {
+            executed.incrementAndGet();
+            task.run();
+        });
+
+        PluginMetadata metadata = new PluginMetadata();
+        metadata.setPluginId(PLUGIN_ID);
+        metadata.setConfiguration(Collections.singletonMap(PluginBatcher.BATCH_SIZE_KEY, "3"));
+        when(plugin.getMetadata()).thenReturn(metadata);
+
+        doAnswer(invocation -> {
+            List<PluginRequest> requests = invocation.getArgument(1);
+            List<CompletableFuture<PluginResponse>> futures = invocation.getArgument(2);
+            for (int i = 0; i < requests.size(); i++) {
+                futures.get(i).complete(PluginResponse.success(requests.get(i).getRequestId(), "batched"));
+            }
+            return null;
+        }).when(pluginInvoker).invokeBatch(eq(plugin), anyList(), anyList());
+        when(pluginInvoker.invokeAsync(eq(plugin), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+            PluginResponse.success(invocation.<PluginRequest>getArgument(1).getRequestId(), "single")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingForTheWindow() throws Exception {
+        ReflectionTestUtils.setField(batcher, "batchWindow", 60000L);
+
+        List<CompletableFuture<PluginResponse>> futures = submit(3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("R-" + i, futures.get(i).get(1, TimeUnit.SECONDS).getRequestId());
+        }
+        assertEquals(1, executed.get());
+        verify(pluginInvoker, never()).invokeAsync(any(), any());
+    }
+
+    @Test
+    void partialBatchIsDispatchedWhenTheWindowCloses() throws Exception {
+        List<CompletableFuture<PluginResponse>> futures = submit(2);
+
+        assertEquals("batched", futures.get(0).get(5, TimeUnit.SECONDS).getData());
+        assertEquals("batched", futures.get(1).get(5, TimeUnit.SECONDS).getData());
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    void singleRequestWindowRunsOnTheBatchExecutor() throws Exception {
+        CompletableFuture<PluginResponse> future = submit(1).get(0);
+
+        assertEquals("single", future.get(5, TimeUnit.SECONDS).getData());
+        assertEquals(1, executed.get());
+        verify(pluginInvoker, never()).invokeBatch(any(), anyList(), anyList());
+    }
+
+    @Test
+    void saturatedExecutorFailsTheBatchWithPluginBusy() {
+        useExecutor(task -> {
+            throw new RejectedExecutionException("saturated");
+        });
+
+        List<CompletableFuture<PluginResponse>> futures = submit(3);
+        CompletableFuture<PluginResponse> single = submit(1).get(0);
+
+        for (CompletableFuture<PluginResponse> future : futures) {
+            assertPluginBusy(future);
+        }
+        assertPluginBusy(single);
+        verify(pluginInvoker, never()).invokeBatch(any(), anyList(), anyList());
+        verify(pluginInvoker, never()).invokeAsync(any(), any());
+    }
+
+    @Test
+    void shutdownDispatchesOpenWindowsThroughTheExecutor() throws Exception {
+        ReflectionTestUtils.setField(batcher, "batchWindow", 60000L);
+        List<CompletableFuture<PluginResponse>> futures = submit(2);
+        assertFalse(futures.get(0).isDone());
+
+        batcher.shutdown();
+
+        assertEquals("batched", futures.get(0).get(1, TimeUnit.SECONDS).getData());
+        assertEquals(1, executed.get());
+    }
+
+    private void useExecutor(Executor executor) {
+        ReflectionTestUtils.setField(batcher, "pluginBatchExecutor", executor);
+    }
+
+    private List<CompletableFuture<PluginResponse>> submit(int count) {
+        List<CompletableFuture<PluginResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(batcher.submit(plugin, new PluginRequest("R-" + i, "BR01", "/trade")));
+        }
+        return futures;
+    }
+
+    private static void assertPluginBusy(CompletableFuture<PluginResponse> future) {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals(PluginRejectedException.PLUGIN_BUSY, ((PluginException) failure.getCause()).getErrorCode());
+    }
+}
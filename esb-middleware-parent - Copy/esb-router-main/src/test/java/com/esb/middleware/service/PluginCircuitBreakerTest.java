@@ -0,0 +1,61 @@
+package com.esb.middleware.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PluginCircuitBreakerTest {
+
+    private static final long OPEN_DURATION = 1000;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PluginCircuitBreaker breaker = new PluginCircuitBreaker(
+        new PluginCircuitBreaker.Settings(50, 100, TimeUnit.SECONDS.toNanos(10), 4, 4, OPEN_DURATION, 2),
+        (from, to) -> { });
+
+    @Test
+    void callGrantedWhileClosedIsNoHalfOpenTrial() {
+        long lateCall = breaker.tryAcquirePermission(0);
+        open(0);
+
+        long first = breaker.tryAcquirePermission(OPEN_DURATION);
+        long second = breaker.tryAcquirePermission(OPEN_DURATION);
+        assertNotEquals(PluginCircuitBreaker.NO_PERMISSION, second);
+        assertEquals(PluginCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // A failure from before the breaker opened must not reopen it
+        breaker.onResult(lateCall, true, FAST, OPEN_DURATION);
+        assertEquals(PluginCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Nor may its success or release free a trial slot or count towards closing
+        breaker.onResult(lateCall, false, FAST, OPEN_DURATION);
+        breaker.releasePermission(lateCall);
+        assertEquals(PluginCircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission(OPEN_DURATION));
+
+        breaker.onResult(first, false, FAST, OPEN_DURATION);
+        assertEquals(PluginCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(second, false, FAST, OPEN_DURATION);
+        assertEquals(PluginCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialReopensTheBreaker() {
+        open(0);
+
+        long trial = breaker.tryAcquirePermission(OPEN_DURATION);
+        breaker.onResult(trial, true, FAST, OPEN_DURATION);
+
+        assertEquals(PluginCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(PluginCircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission(OPEN_DURATION + 1));
+    }
+
+    private void open(long now) {
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquirePermission(now), true, FAST, now);
+        }
+        assertEquals(PluginCircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,172 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.config.PluginConfig;
+import com.esb.middleware.exception.PluginRejectedException;
+import com.esb.middleware.plugin.PluginRegistry;
+import com.esb.plugin.EsbPlugin;
+import com.esb.plugin.PluginException;
+import com.esb.plugin.PluginMetadata;
+import com.esb.plugin.PluginRequest;
+import com.esb.plugin.PluginResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PluginInvokerTest {
+
+    private static final String PLUGIN_ID = "trade-plugin";
+    private static final int MINIMUM_CALLS = 10;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PluginCircuitBreakers circuitBreakers = new PluginCircuitBreakers();
+    private final PluginRegistry pluginRegistry = new PluginRegistry();
+    private final PluginConcurrencyLimiter concurrencyLimiter = new PluginConcurrencyLimiter();
+    private final PluginInvoker invoker = new PluginInvoker();
+    private final EsbPlugin plugin = mock(EsbPlugin.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(circuitBreakers, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(circuitBreakers, "enabled", true);
+        ReflectionTestUtils.setField(circuitBreakers, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(circuitBreakers, "slowCallRateThreshold", 100);
+        ReflectionTestUtils.setField(circuitBreakers, "slowCallDuration", 10000L);
+        ReflectionTestUtils.setField(circuitBreakers, "windowSize", 20);
+        ReflectionTestUtils.setField(circuitBreakers, "minimumCalls", MINIMUM_CALLS);
+        ReflectionTestUtils.setField(circuitBreakers, "openDuration", 30000L);
+        ReflectionTestUtils.setField(circuitBreakers, "halfOpenCalls", 3);
+
+        ReflectionTestUtils.setField(concurrencyLimiter, "maxPerPlugin", 20);
+        ReflectionTestUtils.setField(concurrencyLimiter, "acquireTimeout", 100L);
+
+        PluginConfig pluginConfig = mock(PluginConfig.class);
+        when(pluginConfig.getExecutorMode()).thenReturn(PluginConfig.EXECUTOR_MODE_PLATFORM);
+
+        ReflectionTestUtils.setField(invoker, "concurrencyLimiter", concurrencyLimiter);
+        ReflectionTestUtils.setField(invoker, "circuitBreakers", circuitBreakers);
+        ReflectionTestUtils.setField(invoker, "pluginManagerService", mock(PluginManagerService.class));
+        ReflectionTestUtils.setField(invoker, "pluginRegistry", pluginRegistry);
+        ReflectionTestUtils.setField(invoker, "pluginConfig", pluginConfig);
+        ReflectionTestUtils.setField(invoker, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(invoker, "invocationTimeout", 200L);
+
+        PluginMetadata metadata = new PluginMetadata();
+        metadata.setPluginId(PLUGIN_ID);
+        when(plugin.getMetadata()).thenReturn(metadata);
+        pluginRegistry.registerPlugin(PLUGIN_ID, plugin);
+    }
+
+    @Test
+    void errorResponsesOpenTheBreaker() throws PluginException {
+        when(plugin.process(any())).thenReturn(PluginResponse.error("R-1", "PROCESSING_ERROR", "downstream failed"));
+
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            invoker.invoke(plugin, request());
+        }
+
+        assertEquals(PluginCircuitBreaker.State.OPEN, circuitBreakers.get(PLUGIN_ID, null).getState());
+        PluginRejectedException rejected = assertThrows(PluginRejectedException.class,
+            () -> invoker.invoke(plugin, request()));
+        assertEquals(PluginRejectedException.PLUGIN_NOT_AVAILABLE, rejected.getErrorCode());
+    }
+
+    @Test
+    void asyncErrorResponsesOpenTheBreaker() {
+        when(plugin.processAsync(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+            PluginResponse.error("R-1", "PROCESSING_ERROR", "downstream failed")));
+
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            invoker.invokeAsync(plugin, request()).join();
+        }
+
+        assertEquals(PluginCircuitBreaker.State.OPEN, circuitBreakers.get(PLUGIN_ID, null).getState());
+    }
+
+    @Test
+    void successfulResponsesKeepTheBreakerClosed() throws PluginException {
+        when(plugin.process(any())).thenReturn(PluginResponse.success("R-1", "ok"));
+
+        for (int i = 0; i < MINIMUM_CALLS * 2; i++) {
+            invoker.invoke(plugin, request());
+        }
+
+        assertEquals(PluginCircuitBreaker.State.CLOSED, circuitBreakers.get(PLUGIN_ID, null).getState());
+    }
+
+    @Test
+    void asyncTimeoutFailsCallerButHoldsPermitUntilStageCompletes() {
+        CompletableFuture<PluginResponse> stage = new CompletableFuture<>();
+        when(plugin.processAsync(any())).thenReturn(stage);
+
+        CompletableFuture<PluginResponse> result = invoker.invokeAsync(plugin, request());
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("PLUGIN_TIMEOUT", ((PluginException) failure.getCause()).getErrorCode());
+        assertEquals(1, concurrencyLimiter.getInFlight(PLUGIN_ID));
+
+        stage.complete(PluginResponse.success("R-1", "late"));
+
+        assertEquals(0, concurrencyLimiter.getInFlight(PLUGIN_ID));
+    }
+
+    @Test
+    void batchAdmitsEachRequestAndCompletesItsOwnFuture() throws PluginException {
+        when(plugin.processBatch(any())).thenReturn(Arrays.asList(
+            PluginResponse.success("R-1", "ok"), PluginResponse.error("R-2", "PROCESSING_ERROR", "failed")));
+        List<CompletableFuture<PluginResponse>> futures = futures(2);
+
+        invoker.invokeBatch(plugin, Arrays.asList(request(), request()), futures);
+
+        assertEquals("SUCCESS", futures.get(0).join().getStatus());
+        assertEquals("ERROR", futures.get(1).join().getStatus());
+        assertEquals(0, concurrencyLimiter.getInFlight(PLUGIN_ID));
+        assertEquals(50f, circuitBreakers.get(PLUGIN_ID, null).getFailureRate());
+    }
+
+    @Test
+    void batchRequestsBeyondTheBulkheadAreRejected() throws PluginException {
+        ReflectionTestUtils.setField(concurrencyLimiter, "maxPerPlugin", 2);
+        when(plugin.processBatch(any())).thenAnswer(invocation -> {
+            List<PluginRequest> admitted = invocation.getArgument(0);
+            assertEquals(2, admitted.size());
+            return Arrays.asList(PluginResponse.success("R-1", "ok"), PluginResponse.success("R-2", "ok"));
+        });
+        List<CompletableFuture<PluginResponse>> futures = futures(3);
+
+        invoker.invokeBatch(plugin, Arrays.asList(request(), request(), request()), futures);
+
+        assertEquals("SUCCESS", futures.get(0).join().getStatus());
+        assertEquals("SUCCESS", futures.get(1).join().getStatus());
+        CompletionException rejected = assertThrows(CompletionException.class, () -> futures.get(2).join());
+        assertEquals(PluginRejectedException.PLUGIN_BUSY, ((PluginException) rejected.getCause()).getErrorCode());
+        assertEquals(0, concurrencyLimiter.getInFlight(PLUGIN_ID));
+    }
+
+    private static List<CompletableFuture<PluginResponse>> futures(int count) {
+        List<CompletableFuture<PluginResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        return futures;
+    }
+
+    private static PluginRequest request() {
+        return new PluginRequest("R-1", "BR01", "/trade");
+    }
+}
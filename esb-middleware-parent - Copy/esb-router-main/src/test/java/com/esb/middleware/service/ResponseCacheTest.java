@@ -0,0 +1,101 @@
+package com.esb.middleware.service;
+
+import com.esb.middleware.model.BranchServiceConfig;
+import com.esb.middleware.model.EsbRequest;
+import com.esb.middleware.model.EsbResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResponseCache responseCache = new ResponseCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(responseCache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(responseCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(responseCache, "cacheEnabled", true);
+        ReflectionTestUtils.setField(responseCache, "maxWeight", 1_048_576L);
+        ReflectionTestUtils.setField(responseCache, "maxEntrySize", 65536);
+        responseCache.initialize();
+    }
+
+    @Test
+    void envelopeRequestsWithTheSameKeyFieldsShareAnEntry() throws Exception {
+        BranchServiceConfig serviceConfig = serviceConfig(60000);
+        ResponseCache.Key key = responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbBody\":{\"correlationId\":\"C-1\",\"tradeId\":42}}"));
+        responseCache.put(key, serviceConfig, EsbResponse.success("R-1", Collections.singletonMap("price", 10)));
+
+        ResponseCache.Key sameTrade = responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbBody\":{\"correlationId\":\"C-2\",\"tradeId\":42}}"));
+        EsbResponse cached = responseCache.get(sameTrade, "R-2");
+
+        assertNotNull(cached);
+        assertEquals("R-2", cached.getRequestId());
+        assertEquals("{\"price\":10}", objectMapper.writeValueAsString(cached.getData()));
+    }
+
+    @Test
+    void requestsMissingAKeyFieldOrUncachedServicesBypassTheCache() {
+        EsbRequest request = request("{\"esbBody\":{\"correlationId\":\"C-1\"}}");
+
+        assertNull(responseCache.keyFor(serviceConfig(60000), "trade-plugin", "TRADE_QUERY", request));
+        assertNull(responseCache.keyFor(serviceConfig(0), "trade-plugin", "TRADE_QUERY",
+            request("{\"esbBody\":{\"tradeId\":42}}")));
+    }
+
+    @Test
+    void plainNamesResolveAgainstThePayloadRootOnly() {
+        BranchServiceConfig serviceConfig = serviceConfig(60000);
+
+        assertNull(responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbBody\":{\"order\":{\"tradeId\":42}}}")));
+        assertNull(responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbHeader\":{\"tradeId\":42},\"esbBody\":{}}")));
+        assertNotNull(responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"tradeId\":42,\"legs\":[{\"tradeId\":1}]}")));
+    }
+
+    @Test
+    void dottedPathsSelectNestedFields() {
+        BranchServiceConfig serviceConfig = serviceConfig(60000);
+        serviceConfig.setCacheKeyFields("esbHeader.branch, esbBody.order.tradeId");
+
+        ResponseCache.Key key = responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbHeader\":{\"branch\":\"BR01\"},\"esbBody\":{\"order\":{\"tradeId\":42}}}"));
+        ResponseCache.Key otherBranch = responseCache.keyFor(serviceConfig, "trade-plugin", "TRADE_QUERY",
+            request("{\"esbHeader\":{\"branch\":\"BR02\"},\"esbBody\":{\"order\":{\"tradeId\":42}}}"));
+
+        assertNotNull(key);
+        assertNotEquals(key, otherBranch);
+    }
+
+    private static BranchServiceConfig serviceConfig(int ttlMs) {
+        BranchServiceConfig serviceConfig = new BranchServiceConfig();
+        serviceConfig.setId(7L);
+        serviceConfig.setModifiedDate(LocalDateTime.of(2024, 1, 1, 12, 0));
+        serviceConfig.setCacheTtlMs(ttlMs);
+        serviceConfig.setCacheKeyFields("tradeId");
+        return serviceConfig;
+    }
+
+    private static EsbRequest request(String body) {
+        EsbRequest request = new EsbRequest("BR01", "TRADE_QUERY");
+        request.setRawBody(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,35 @@
+package com.esb.middleware.reactive;
+
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Reactive Spring Boot Application for ESB Router.
+ * Runs the router services from esb-router-main behind a WebFlux/Netty front end;
+ * the servlet controller and exception handler packages are deliberately not scanned.
+ */
+@SpringBootApplication(scanBasePackages = {
+    "com.esb.middleware.reactive",
+    "com.esb.middleware.config",
+    "com.esb.middleware.handler",
+    "com.esb.middleware.service"
+})
+@MapperScan("com.esb.middleware.mapper")
+@EnableAsync
+@EnableScheduling
+public class EsbReactiveRouterApplication {
+
+    public static void main(String[] args) {
+
+        System.setProperty("spring.profiles.default", "dev");
+
+        SpringApplication application = new SpringApplication(EsbReactiveRouterApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setAdditionalProfiles("reactive");
+        application.run(args);
+    }
+}
@@ -0,0 +1,173 @@
+package com.esb.middleware.reactive.controller;
+
+import com.esb.middleware.handler.EsbEnvelopeParser;
+import com.esb.middleware.model.EsbEnvelope;
+import com.esb.middleware.model.EsbRequest;
+import com.esb.middleware.model.EsbResponse;
+import com.esb.middleware.service.EsbRouterService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ESB Router Controller on WebFlux/Netty.
+ * Same routes as the servlet controller; the body is aggregated without blocking, routing
+ * fields are parsed on the event loop and the plugin call is bridged through the plugin executor.
+ */
+@RestController
+@RequestMapping("/api/esb")
+@CrossOrigin(origins = "*")
+public class EsbReactiveRouterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsbReactiveRouterController.class);
+
+    @Autowired
+    private EsbRouterService esbRouterService;
+
+    @Autowired
+    private EsbEnvelopeParser envelopeParser;
+
+    @Value("${esb.router.async.timeout:30000}")
+    private long asyncTimeout;
+
+    /**
+     * Legacy endpoint
+     */
+    @PostMapping("/route")
+    public Mono<ResponseEntity<EsbResponse>> routeRequest(@RequestBody Mono<byte[]> body,
+                                                         ServerHttpRequest httpRequest) {
+        return body.flatMap(bytes -> {
+            try {
+                EsbRequest esbRequest = EsbRequest.fromEnvelope(envelopeParser.read(bytes));
+                return dispatch(esbRequest, getClientIpAddress(httpRequest));
+            } catch (Exception e) {
+                return Mono.just(handleError("Error processing request", e));
+            }
+        });
+    }
+
+    /**
+     * Dynamic routing endpoint: /route/{pluginId}/{serviceEndpoint}?esbService={serviceName}
+     */
+    @PostMapping("/route/{pluginId}/{serviceEndpoint}")
+    public Mono<ResponseEntity<EsbResponse>> routeDynamicRequest(
+            @PathVariable String pluginId,
+            @PathVariable String serviceEndpoint,
+            @RequestParam(required = false) String esbService,
+            @RequestBody Mono<byte[]> body,
+            ServerHttpRequest httpRequest) {
+
+        return body.flatMap(bytes -> {
+            try {
+                EsbEnvelope envelope = envelopeParser.read(bytes);
+                EsbRequest esbRequest = EsbRequest.fromEnvelope(envelope);
+                esbRequest.applyDynamicRoute(pluginId, serviceEndpoint, esbService, envelope.getServiceId());
+                return dispatch(esbRequest, getClientIpAddress(httpRequest));
+            } catch (Exception e) {
+                return Mono.just(handleError("Error processing dynamic request", e));
+            }
+        });
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public Mono<ResponseEntity<Map<String, Object>>> healthCheck() {
+        return Mono.fromCallable(() -> {
+            Map<String, Object> health = new HashMap<>();
+            health.put("status", "UP");
+            health.put("frontEnd", "reactive");
+            health.put("statistics", esbRouterService.getServiceStatistics());
+            health.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.ok(health);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Validate and hand the request to the router service on the plugin executor
+     */
+    private Mono<ResponseEntity<EsbResponse>> dispatch(EsbRequest esbRequest, String sourceIp) {
+        if (!esbRouterService.isValidRequest(esbRequest)) {
+            EsbResponse response = EsbResponse.error("INVALID_REQUEST",
+                "VALIDATION_ERROR", "Invalid request parameters");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+
+        return Mono.fromFuture(() -> esbRouterService.processRequestAsync(esbRequest, sourceIp))
+            .timeout(Duration.ofMillis(asyncTimeout))
+            .map(response -> ResponseEntity.status(mapResponseStatus(response)).body(response))
+            .onErrorResume(TimeoutException.class, e -> {
+                logger.warn("ESB request timed out after {}ms: branch={}, endpoint={}",
+                           asyncTimeout, esbRequest.getBranchCode(), esbRequest.getEndpoint());
+                EsbResponse response = EsbResponse.timeout("TIMEOUT_ERROR", asyncTimeout);
+                return Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response));
+            })
+            .onErrorResume(e -> Mono.just(handleError("Error processing request", e)));
+    }
+
+    private ResponseEntity<EsbResponse> handleError(String message, Throwable e) {
+        if (e instanceof JsonProcessingException) {
+            logger.warn("Malformed ESB request: {}", ((JsonProcessingException) e).getOriginalMessage());
+            EsbResponse response = EsbResponse.error("INVALID_REQUEST",
+                "VALIDATION_ERROR", "Malformed request body: " + ((JsonProcessingException) e).getOriginalMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        logger.error(message, e);
+        EsbResponse response = EsbResponse.error("SYSTEM_ERROR",
+            "INTERNAL_ERROR", "System error occurred: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    /**
+     * Map ESB response status to HTTP status
+     */
+    private HttpStatus mapResponseStatus(EsbResponse response) {
+        switch (response.getStatus()) {
+            case "SUCCESS":
+                return HttpStatus.OK;
+            case "NOT_FOUND":
+                return HttpStatus.NOT_FOUND;
+            case "BUSINESS_ERROR":
+                return HttpStatus.BAD_REQUEST;
+            case "TIMEOUT":
+                return HttpStatus.GATEWAY_TIMEOUT;
+            case "ERROR":
+            default:
+                return HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+    }
+
+    /**
+     * Get client IP address from request
+     */
+    private String getClientIpAddress(ServerHttpRequest request) {
+        String xForwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+
+        String xRealIp = request.getHeaders().getFirst("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress != null ? remoteAddress.getHostString() : null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.esb.middleware.reactive.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator comparing the servlet and reactive routers.
+ * Sends the same envelope to each target URL with a fixed number of requests in flight
+ * and prints throughput and latency percentiles per target.
+ * Kept under src/test so it is not packaged with the router; run it from the test classpath.
+ *
+ * Usage: RouterBenchmark payload.json requests concurrency url [url...]
+ * e.g.   RouterBenchmark trade.json 20000 2000 http://localhost:8082/api/esb/route http://localhost:8083/api/esb/route
+ */
+public class RouterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: RouterBenchmark <payload.json> <requests> <concurrency> <url> [url...]");
+            System.exit(1);
+        }
+
+        byte[] payload = Files.readAllBytes(Paths.get(args[0]));
+        int requests = Integer.parseInt(args[1]);
+        int concurrency = Integer.parseInt(args[2]);
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+        System.out.printf("%-45s %10s %10s %8s %8s %8s %8s%n",
+            "target", "req/s", "errors", "p50ms", "p95ms", "p99ms", "maxms");
+
+        for (int i = 3; i < args.length; i++) {
+            URI target = URI.create(args[i]);
+            // Warm up connections and JIT before measuring
+            run(client, target, payload, Math.min(requests, 1000), concurrency);
+            Result result = run(client, target, payload, requests, concurrency);
+            System.out.printf("%-45s %10.1f %10d %8.1f %8.1f %8.1f %8.1f%n",
+                target, result.throughput(), result.errors,
+                result.percentile(50), result.percentile(95), result.percentile(99), result.percentile(100));
+        }
+    }
+
+    private static Result run(HttpClient client, URI target, byte[] payload, int requests, int concurrency)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[requests];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
+
+            futures[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    latencies[index] = System.nanoTime() - sent;
+                    if (ex != null || response.statusCode() >= 500) {
+                        errors.incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+        }
+        CompletableFuture.allOf(futures).exceptionally(ex -> null).join();
+
+        return new Result(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private static class Result {
+        private final long[] latencies;
+        private final int errors;
+        private final long elapsedNanos;
+
+        Result(long[] latencies, int errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            Arrays.sort(this.latencies);
+        }
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(int percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -4,12 +4,18 @@ import com.esb.plugin.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Trade ESB Plugin implementation
  */
-public class TradePlugin implements EsbPlugin {
+public class TradePlugin implements StreamingEsbPlugin {
 
     private static final Logger logger = LoggerFactory.getLogger(TradePlugin.class);
 
@@ -87,6 +93,107 @@ public class TradePlugin implements EsbPlugin {
         }
     }
 
+    /**
+     * Non-blocking variant of process(): the trade ESB call runs on the HTTP client's own
+     * threads and no caller thread waits for the round trip
+     */
+    @Override
+    public CompletionStage<PluginResponse> processAsync(PluginRequest request) {
+        if (!initialized || !healthy) {
+            return CompletableFuture.failedFuture(
+                    new PluginException("trade-plugin", "NOT_READY", "Plugin not initialized or unhealthy"));
+        }
+
+        logger.info("Processing trade request asynchronously: requestId={}, endpoint={}",
+                request.getRequestId(), request.getEndpoint());
+
+        long startTime = System.currentTimeMillis();
+
+        CompletableFuture<PluginResponse> stage;
+        switch (request.getEndpoint()) {
+            case "trade-inquiry":
+                stage = tradeService.processTradeInquiryAsync(request);
+                break;
+            case "trade-booking":
+                stage = tradeService.processTradeBookingAsync(request);
+                break;
+            case "trade-confirmation":
+                stage = tradeService.processTradeConfirmationAsync(request);
+                break;
+            default:
+                stage = CompletableFuture.completedFuture(PluginResponse.error(request.getRequestId(),
+                        "UNSUPPORTED_ENDPOINT", "Endpoint not supported: " + request.getEndpoint()));
+        }
+
+        return stage.handle((response, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                logger.error("Error processing trade request: requestId={}", request.getRequestId(), cause);
+
+                response = PluginResponse.error(request.getRequestId(),
+                        "PROCESSING_ERROR", "Trade processing failed: " + cause.getMessage());
+            }
+
+            long processingTime = System.currentTimeMillis() - startTime;
+            response.setProcessingTime(processingTime);
+
+            logger.info("Trade request processed: requestId={}, status={}, time={}ms",
+                    request.getRequestId(), response.getStatus(), processingTime);
+
+            return response;
+        });
+    }
+
+    /**
+     * Process a batch by starting every trade ESB call at once and waiting for all of them,
+     * so a batch holds one thread instead of one per request
+     */
+    @Override
+    public List<PluginResponse> processBatch(List<PluginRequest> requests) throws PluginException {
+        List<CompletableFuture<PluginResponse>> stages = new ArrayList<>(requests.size());
+        for (PluginRequest request : requests) {
+            stages.add(processAsync(request).toCompletableFuture());
+        }
+
+        List<PluginResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                responses.add(stages.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                String errorCode = cause instanceof PluginException ? ((PluginException) cause).getErrorCode() : "PROCESSING_ERROR";
+                responses.add(PluginResponse.error(requests.get(i).getRequestId(), errorCode, cause.getMessage()));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Trade confirmations may carry attachments, so they can be streamed
+     */
+    @Override
+    public boolean supportsStreaming(String endpoint) {
+        return "trade-confirmation".equals(endpoint);
+    }
+
+    @Override
+    public void processStream(PluginRequest request, InputStream body, PluginStreamResponse response)
+            throws PluginException {
+        if (!initialized || !healthy) {
+            throw new PluginException("trade-plugin", "NOT_READY", "Plugin not initialized or unhealthy");
+        }
+        if (!supportsStreaming(request.getEndpoint())) {
+            throw new PluginException("trade-plugin", "UNSUPPORTED_ENDPOINT",
+                    "Endpoint does not support streaming: " + request.getEndpoint());
+        }
+
+        long startTime = System.currentTimeMillis();
+        tradeService.streamTradeConfirmation(request, body, response);
+
+        logger.info("Trade request streamed: requestId={}, time={}ms",
+                request.getRequestId(), System.currentTimeMillis() - startTime);
+    }
+
     @Override
     public PluginMetadata getMetadata() {
         PluginMetadata metadata = new PluginMetadata("trade-plugin", "Trade ESB Plugin", "1.0.0");
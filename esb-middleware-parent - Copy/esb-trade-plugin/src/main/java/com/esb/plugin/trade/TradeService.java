@@ -4,8 +4,11 @@ import com.esb.plugin.*;
 import com.esb.plugin.trade.model.TradeRequest;
 import com.esb.plugin.trade.model.TradeResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
@@ -13,7 +16,16 @@ import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Trade service for handling trade ESB operations
@@ -24,6 +36,7 @@ public class TradeService {
     
     private ObjectMapper objectMapper;
     private CloseableHttpClient httpClient;
+    private HttpClient asyncHttpClient;
     private PluginConfiguration configuration;
     private String baseUrl;
     private int timeout;
@@ -43,6 +56,9 @@ public class TradeService {
             this.baseUrl = config.getProperty("targetUrl", "http://localhost:8081/trade");
             this.timeout = Integer.parseInt(config.getProperty("timeout", "30000"));
             this.retryCount = Integer.parseInt(config.getProperty("retryCount", "3"));
+            this.asyncHttpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeout))
+                .build();
             
             this.initialized = true;
             this.healthy = true;
@@ -144,6 +160,173 @@ public class TradeService {
         }
     }
     
+    /**
+     * Stream a trade confirmation document to the trade ESB and its reply back to the client.
+     * Neither body is buffered; the request goes out chunked as it is read from the client.
+     * Not retried, since the request body can only be read once.
+     */
+    public void streamTradeConfirmation(PluginRequest request, InputStream body, 
+                                        PluginStreamResponse streamResponse) throws PluginException {
+        logger.info("Streaming trade confirmation: requestId={}", request.getRequestId());
+        
+        String targetUrl = request.getParameters().getOrDefault("targetUrl", baseUrl + "/confirmation").toString();
+        Object contentType = request.getHeaders().get("Content-Type");
+        
+        HttpPost httpPost = new HttpPost(targetUrl);
+        httpPost.setHeader("X-Request-ID", request.getRequestId());
+        httpPost.setEntity(new InputStreamEntity(body, -1, 
+            contentType != null ? ContentType.parse(contentType.toString()) : ContentType.APPLICATION_JSON));
+        
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            
+            if (statusCode < 200 || statusCode >= 300) {
+                String responseBody = entity != null ? EntityUtils.toString(entity) : "";
+                logger.warn("Trade ESB returned error: statusCode={}, body={}", statusCode, responseBody);
+                throw new PluginException("trade-plugin", "ESB_ERROR", 
+                    "Trade ESB returned error: " + statusCode + " - " + responseBody);
+            }
+            
+            streamResponse.setStatusCode(statusCode);
+            if (entity != null) {
+                if (entity.getContentType() != null) {
+                    streamResponse.setContentType(entity.getContentType().getValue());
+                }
+                entity.writeTo(streamResponse.getOutputStream());
+            }
+            
+        } catch (PluginException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error streaming trade confirmation: requestId={}", request.getRequestId(), e);
+            throw new PluginException("trade-plugin", "ESB_CALL_FAILED", 
+                "Streaming trade confirmation failed: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Process trade inquiry request without blocking the calling thread
+     */
+    public CompletableFuture<PluginResponse> processTradeInquiryAsync(PluginRequest request) {
+        logger.info("Processing trade inquiry asynchronously: requestId={}", request.getRequestId());
+        
+        try {
+            TradeRequest tradeRequest = convertToTradeRequest(request);
+            validateTradeInquiryRequest(tradeRequest);
+            
+            String targetUrl = request.getParameters().getOrDefault("targetUrl", baseUrl + "/inquiry").toString();
+            return callTradeESBAsync(targetUrl, tradeRequest, request.getRequestId(), 1)
+                .thenApply(tradeResponse -> PluginResponse.success(request.getRequestId(), tradeResponse));
+            
+        } catch (PluginException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Process trade booking request without blocking the calling thread
+     */
+    public CompletableFuture<PluginResponse> processTradeBookingAsync(PluginRequest request) {
+        logger.info("Processing trade booking asynchronously: requestId={}", request.getRequestId());
+        
+        try {
+            TradeRequest tradeRequest = convertToTradeRequest(request);
+            validateTradeBookingRequest(tradeRequest);
+            
+            String targetUrl = request.getParameters().getOrDefault("targetUrl", baseUrl + "/booking").toString();
+            return callTradeESBAsync(targetUrl, tradeRequest, request.getRequestId(), 1)
+                .thenApply(tradeResponse -> PluginResponse.success(request.getRequestId(), tradeResponse));
+            
+        } catch (PluginException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Process trade confirmation request without blocking the calling thread
+     */
+    public CompletableFuture<PluginResponse> processTradeConfirmationAsync(PluginRequest request) {
+        logger.info("Processing trade confirmation asynchronously: requestId={}", request.getRequestId());
+        
+        try {
+            TradeRequest tradeRequest = convertToTradeRequest(request);
+            validateTradeConfirmationRequest(tradeRequest);
+            
+            String targetUrl = request.getParameters().getOrDefault("targetUrl", baseUrl + "/confirmation").toString();
+            return callTradeESBAsync(targetUrl, tradeRequest, request.getRequestId(), 1)
+                .thenApply(tradeResponse -> PluginResponse.success(request.getRequestId(), tradeResponse));
+            
+        } catch (PluginException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Call external trade ESB system without blocking.
+     * Same retry policy as callTradeESB, but the backoff is scheduled instead of slept,
+     * so no thread is held while waiting for the response or the next attempt.
+     */
+    private CompletableFuture<TradeResponse> callTradeESBAsync(String url, TradeRequest tradeRequest, 
+                                                              String requestId, int attempt) {
+        HttpRequest httpRequest;
+        try {
+            logger.debug("Calling trade ESB asynchronously: url={}, attempt={}", url, attempt);
+            
+            httpRequest = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeout))
+                .header("Content-Type", "application/json")
+                .header("X-Request-ID", requestId)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(tradeRequest)))
+                .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new PluginException("trade-plugin", "ESB_CALL_FAILED", 
+                "Failed to build trade ESB request: " + e.getMessage(), e));
+        }
+        
+        return asyncHttpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+            .handle((response, ex) -> {
+                if (ex != null) {
+                    return retryTradeESBAsync(url, tradeRequest, requestId, attempt, 
+                        ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                }
+                
+                int statusCode = response.statusCode();
+                if (statusCode < 200 || statusCode >= 300) {
+                    // Error response, not retried
+                    logger.warn("Trade ESB returned error: statusCode={}, body={}", statusCode, response.body());
+                    return CompletableFuture.<TradeResponse>failedFuture(new PluginException("trade-plugin", "ESB_ERROR", 
+                        "Trade ESB returned error: " + statusCode + " - " + response.body()));
+                }
+                
+                try {
+                    TradeResponse tradeResponse = objectMapper.readValue(response.body(), TradeResponse.class);
+                    logger.debug("Trade ESB call successful: requestId={}, attempt={}", requestId, attempt);
+                    return CompletableFuture.completedFuture(tradeResponse);
+                } catch (Exception e) {
+                    return retryTradeESBAsync(url, tradeRequest, requestId, attempt, e);
+                }
+            })
+            .thenCompose(result -> result);
+    }
+    
+    private CompletableFuture<TradeResponse> retryTradeESBAsync(String url, TradeRequest tradeRequest, 
+                                                               String requestId, int attempt, Throwable failure) {
+        logger.warn("Trade ESB call failed, attempt {}/{}: {}", attempt, retryCount, failure.getMessage());
+        
+        if (attempt >= retryCount) {
+            // All attempts failed
+            return CompletableFuture.failedFuture(new PluginException("trade-plugin", "ESB_CALL_FAILED", 
+                "All " + retryCount + " attempts to call trade ESB failed. Last error: " + failure.getMessage(), 
+                failure));
+        }
+        
+        // Exponential backoff
+        return CompletableFuture.supplyAsync(() -> null, 
+                CompletableFuture.delayedExecutor(1000L * attempt, TimeUnit.MILLISECONDS))
+            .thenCompose(ignored -> callTradeESBAsync(url, tradeRequest, requestId, attempt + 1));
+    }
+    
     /**
      * Call external trade ESB system
      */
@@ -167,15 +350,15 @@ public class TradeService {
                 
                 try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
                     int statusCode = response.getStatusLine().getStatusCode();
-                    String responseBody = EntityUtils.toString(response.getEntity());
                     
                     if (statusCode >= 200 && statusCode < 300) {
-                        // Success response
-                        TradeResponse tradeResponse = objectMapper.readValue(responseBody, TradeResponse.class);
+                        // Success response, bound from the entity stream instead of buffering it as a String
+                        TradeResponse tradeResponse = objectMapper.readValue(response.getEntity().getContent(), TradeResponse.class);
                         logger.debug("Trade ESB call successful: requestId={}, attempt={}", requestId, attempts);
                         return tradeResponse;
                     } else {
                         // Error response
+                        String responseBody = EntityUtils.toString(response.getEntity());
                         logger.warn("Trade ESB returned error: statusCode={}, body={}", statusCode, responseBody);
                         throw new PluginException("trade-plugin", "ESB_ERROR", 
                             "Trade ESB returned error: " + statusCode + " - " + responseBody);
@@ -210,13 +393,12 @@ public class TradeService {
      */
     private TradeRequest convertToTradeRequest(PluginRequest request) throws PluginException {
         try {
-            if (request.getPayload() == null) {
+            if (!request.hasRawPayload() && request.getPayload() == null) {
                 throw new PluginException("trade-plugin", "INVALID_PAYLOAD", "Request payload is null");
             }
             
-            // Convert payload to TradeRequest
-            String payloadJson = objectMapper.writeValueAsString(request.getPayload());
-            TradeRequest tradeRequest = objectMapper.readValue(payloadJson, TradeRequest.class);
+            // Bind TradeRequest straight from the original request bytes when the router passed them through
+            TradeRequest tradeRequest = request.readPayload(TradeRequest.class, objectMapper);
             
             // Set additional fields from request context
             tradeRequest.setRequestId(request.getRequestId());